@@ -1,21 +1,30 @@
 package com.securepayments;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module; // <-- REQUIRED FIX IMPORT
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
+@EnableScheduling
 public class SecurePaymentsApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(SecurePaymentsApplication.class, args);
     }
 
+    // Only StockService and AIService use it, and both are created on first use
     @Bean
+    @Lazy
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
@@ -35,4 +44,20 @@ public class SecurePaymentsApplication {
 
         return mapper;
     }
-}
\ No newline at end of file
+
+    /**
+     * Smile and CBOR encodings of every JSON endpoint, for clients that send
+     * Accept: application/x-jackson-smile or application/cbor. Both copy the mapper above,
+     * so the binary formats carry exactly the same fields. These replace Spring's default
+     * converters of the same type in place, after JSON, so a browser's wildcard Accept still gets JSON.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapper.copyWith(new SmileFactory()));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapper.copyWith(new CBORFactory()));
+    }
+}
@@ -1,6 +1,9 @@
 package com.securepayments.controller;
 
 import com.securepayments.service.AIService;
+import com.securepayments.service.RateLimiterService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.math.BigDecimal;
@@ -11,9 +14,11 @@ import java.util.Map;
 public class AIController {
 
     private final AIService aiService;
+    private final RateLimiterService rateLimiterService;
 
-    public AIController(AIService aiService) {
+    public AIController(@Lazy AIService aiService, RateLimiterService rateLimiterService) {
         this.aiService = aiService;
+        this.rateLimiterService = rateLimiterService;
     }
 
     /**
@@ -21,7 +26,8 @@ public class AIController {
      * Takes transaction details and returns a JSON risk analysis using the Gemini API.
      */
     @PostMapping("/analyze-transaction")
-    public ResponseEntity<String> analyzeTransaction(@RequestBody Map<String, Object> transactionRequest) {
+    public ResponseEntity<String> analyzeTransaction(@RequestBody Map<String, Object> transactionRequest,
+                                                     HttpServletRequest httpRequest) {
 
         // 1. Parse Input from the frontend request body
         // Number is used to safely handle JSON parsing of integers/doubles.
@@ -31,6 +37,10 @@ public class AIController {
         BigDecimal amount = new BigDecimal(transactionRequest.get("amount").toString());
         BigDecimal networkFee = new BigDecimal(transactionRequest.get("networkFee").toString());
 
+        // Per client address: the sender id is the caller's choice, so rotating it must not buy a fresh bucket.
+        // AIService also draws from the global Gemini quota.
+        rateLimiterService.acquire(RateLimiterService.AI, "ip:" + httpRequest.getRemoteAddr());
+
         // 2. Call the AI Service for analysis
         String analysisJson = aiService.analyzeTransaction(senderId, receiverId, amount, networkFee);
 
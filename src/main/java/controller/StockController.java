@@ -1,7 +1,10 @@
 package com.securepayments.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securepayments.service.RateLimiterService;
 import com.securepayments.service.StockService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -13,10 +16,12 @@ public class StockController {
 
     private final StockService stockService;
     private final ObjectMapper objectMapper;
+    private final RateLimiterService rateLimiterService;
 
-    public StockController(StockService stockService, ObjectMapper objectMapper) {
+    public StockController(@Lazy StockService stockService, ObjectMapper objectMapper, RateLimiterService rateLimiterService) {
         this.stockService = stockService;
         this.objectMapper = objectMapper;
+        this.rateLimiterService = rateLimiterService;
     }
 
     /**
@@ -24,7 +29,8 @@ public class StockController {
      * Example: GET /api/stocks/price/AAPL
      */
     @GetMapping("/price/{symbol}")
-    public String getStockPrice(@PathVariable String symbol) {
+    public String getStockPrice(@PathVariable String symbol, HttpServletRequest request) {
+        limit("price", request);
         return stockService.getLatestStockPrice(symbol);
     }
 
@@ -33,7 +39,8 @@ public class StockController {
      * Example: GET /api/stocks/search/tesla
      */
     @GetMapping("/search/{keyword}")
-    public String searchStocks(@PathVariable String keyword) {
+    public String searchStocks(@PathVariable String keyword, HttpServletRequest request) {
+        limit("search", request);
         return stockService.searchStockSymbol(keyword);
     }
 
@@ -42,7 +49,13 @@ public class StockController {
      * Example: GET /api/stocks/series/GOOGL
      */
     @GetMapping("/series/{symbol}")
-    public String getDailyAdjustedSeries(@PathVariable String symbol) {
+    public String getDailyAdjustedSeries(@PathVariable String symbol, HttpServletRequest request) {
+        limit("series", request);
         return stockService.getDailyAdjustedSeries(symbol);
     }
+
+    // Stock endpoints carry no user id, so each client address gets its own bucket per endpoint
+    private void limit(String endpoint, HttpServletRequest request) {
+        rateLimiterService.acquire(RateLimiterService.STOCKS, endpoint + ":ip:" + request.getRemoteAddr());
+    }
 }
\ No newline at end of file
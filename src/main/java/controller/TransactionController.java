@@ -1,15 +1,34 @@
 package com.securepayments.controller;
 
+import com.securepayments.dto.ActivityReportView;
+import com.securepayments.dto.ArchiveReportView;
+import com.securepayments.dto.BlockView;
+import com.securepayments.dto.DeletionJobView;
+import com.securepayments.dto.FeeEstimateView;
+import com.securepayments.dto.TransactionView;
+import com.securepayments.dto.UserActivityView;
+import com.securepayments.dto.UserView;
 import com.securepayments.model.Block;
 import com.securepayments.model.User;
 import com.securepayments.model.PaymentTransaction;
+import com.securepayments.service.ActivityService;
+import com.securepayments.service.ArchiveService;
 import com.securepayments.service.BlockchainService;
+import com.securepayments.service.FeeEstimatorService;
+import com.securepayments.service.IdempotencyService;
+import com.securepayments.service.PaymentIntakeService;
+import com.securepayments.service.PaymentRequest;
+import com.securepayments.service.RateLimiterService;
 import com.securepayments.service.TransactionService;
+import com.securepayments.service.UserDeletionService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,10 +39,28 @@ public class TransactionController {
 
     private final TransactionService transactionService;
     private final BlockchainService blockchainService;
+    private final IdempotencyService idempotencyService;
+    private final PaymentIntakeService paymentIntakeService;
+    private final UserDeletionService userDeletionService;
+    private final FeeEstimatorService feeEstimatorService;
+    private final RateLimiterService rateLimiterService;
+    private final ActivityService activityService;
+    private final ArchiveService archiveService;
 
-    public TransactionController(TransactionService transactionService, BlockchainService blockchainService) {
+    public TransactionController(TransactionService transactionService, BlockchainService blockchainService,
+                                 IdempotencyService idempotencyService, PaymentIntakeService paymentIntakeService,
+                                 UserDeletionService userDeletionService, FeeEstimatorService feeEstimatorService,
+                                 RateLimiterService rateLimiterService, ActivityService activityService,
+                                 ArchiveService archiveService) {
         this.transactionService = transactionService;
         this.blockchainService = blockchainService;
+        this.idempotencyService = idempotencyService;
+        this.paymentIntakeService = paymentIntakeService;
+        this.userDeletionService = userDeletionService;
+        this.feeEstimatorService = feeEstimatorService;
+        this.rateLimiterService = rateLimiterService;
+        this.activityService = activityService;
+        this.archiveService = archiveService;
     }
 
     // ====================================================================
@@ -31,12 +68,12 @@ public class TransactionController {
     // ====================================================================
 
     @GetMapping("/users")
-    public List<User> getAllUsers() {
+    public List<UserView> getAllUsers() {
         return transactionService.listUsers();
     }
 
     @GetMapping("/users/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserView> getUserById(@PathVariable Long id) {
         return transactionService.findById(id)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -45,10 +82,38 @@ public class TransactionController {
     @GetMapping("/users/{id}/balance")
     public ResponseEntity<BigDecimal> getUserBalance(@PathVariable Long id) {
         return transactionService.findById(id)
-                .map(user -> ResponseEntity.ok(user.getBalance()))
+                .map(user -> ResponseEntity.ok(user.balance()))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // Totals and per-day volume from the incrementally maintained aggregates; no ledger scan
+    @GetMapping("/users/{id}/activity")
+    public ResponseEntity<UserActivityView> getUserActivity(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "30") int days) {
+        if (transactionService.findById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(activityService.getActivity(id, days));
+    }
+
+    // The user's sent and received transactions from both the recent table and the archive
+    @GetMapping("/users/{id}/transactions")
+    public ResponseEntity<List<TransactionView>> getUserTransactions(@PathVariable Long id) {
+        if (transactionService.findById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(transactionService.getHistory(id));
+    }
+
+    /**
+     * Checks the activity aggregates against the raw ledger (also runs on a schedule).
+     * A full ledger scan, so at most one run per activity.verify.min-interval-ms (429 otherwise).
+     */
+    @PostMapping("/activity/verify")
+    public ActivityReportView verifyActivity(@RequestParam(defaultValue = "false") boolean repair) {
+        return activityService.requestVerify(repair);
+    }
+
     @PostMapping("/users")
     @ResponseStatus(HttpStatus.CREATED)
     public User createUser(@RequestBody User user) {
@@ -59,23 +124,37 @@ public class TransactionController {
         );
     }
 
+    /**
+     * Starts a background deletion and answers 202 with the job; poll the Location for progress.
+     */
     @DeleteMapping("/users/{id}")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
+    public ResponseEntity<DeletionJobView> deleteUser(@PathVariable Long id) {
         try {
-            transactionService.deleteUser(id);
-            return ResponseEntity.noContent().build();
+            DeletionJobView job = userDeletionService.submit(id);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/users/deletions/" + job.jobId()))
+                    .body(job);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    @GetMapping("/users/deletions/{jobId}")
+    public ResponseEntity<DeletionJobView> getDeletionJob(@PathVariable String jobId) {
+        return userDeletionService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     // ====================================================================
     // TRANSACTION & BLOCKCHAIN ENDPOINTS
     // ====================================================================
 
     @PostMapping("/transactions")
     @ResponseStatus(HttpStatus.CREATED)
-    public PaymentTransaction createTransaction(@RequestBody Map<String, Object> transactionRequest) {
+    public PaymentTransaction createTransaction(@RequestBody Map<String, Object> transactionRequest,
+                                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                HttpServletRequest httpRequest) {
         // --- FIX: Implement Transaction Logic ---
 
         Long senderId = ((Number) transactionRequest.get("senderId")).longValue();
@@ -83,8 +162,22 @@ public class TransactionController {
         BigDecimal amount = new BigDecimal(transactionRequest.get("amount").toString());
         BigDecimal networkFee = new BigDecimal(transactionRequest.get("networkFee").toString());
 
-        // This calls the service, which handles the locking and debit.
-        return transactionService.createTransaction(senderId, receiverId, amount, networkFee);
+        // Bursts from one sender would otherwise queue up on that sender's row lock. The sender id is
+        // only a claim, so the client address is part of the key: naming someone else's id cannot drain their bucket
+        rateLimiterService.acquire(RateLimiterService.PAYMENTS,
+                "ip:" + httpRequest.getRemoteAddr() + ":user:" + senderId);
+
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            // The intake service handles the locking and debit (directly or via group commit)
+            return paymentIntakeService.process(new PaymentRequest(senderId, receiverId, amount, networkFee, null));
+        }
+        if (idempotencyKey.length() > 64) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key must be at most 64 characters");
+        }
+
+        // Retries with the same key get the original transaction back without touching the user locks
+        PaymentRequest request = new PaymentRequest(senderId, receiverId, amount, networkFee, idempotencyKey);
+        return idempotencyService.execute(idempotencyKey, request, () -> paymentIntakeService.process(request));
     }
 
     @PostMapping("/mine")
@@ -96,13 +189,68 @@ public class TransactionController {
         return ResponseEntity.ok(minedBlock);
     }
 
+    /**
+     * The blocks after the last archived one by default; pass fromBlock (and optionally toBlock)
+     * to read a slice that reaches into the archive.
+     */
     @GetMapping("/blockchain")
-    public List<Block> getBlockchain() {
-        return blockchainService.getChain();
+    public List<BlockView> getBlockchain(@RequestParam(required = false) Integer fromBlock,
+                                         @RequestParam(required = false) Integer toBlock) {
+        if (fromBlock == null) {
+            return blockchainService.getChain();
+        }
+        return blockchainService.getChain(fromBlock, checkedUpperBound(fromBlock, toBlock));
+    }
+
+    /**
+     * Re-validates hash links, proof of work and the difficulty retarget rule for every block.
+     */
+    @GetMapping("/blockchain/validate")
+    public Map<String, Object> validateBlockchain() {
+        List<String> errors = blockchainService.validateChain();
+        return Map.of("valid", errors.isEmpty(), "errors", errors);
     }
 
+    /**
+     * Pending and recent (not yet archived) transactions; pass fromBlock (and optionally toBlock)
+     * to add the archived transactions of those blocks.
+     */
     @GetMapping("/transactions")
-    public List<PaymentTransaction> getAllTransactions() {
-        return transactionService.getAll();
+    public List<TransactionView> getAllTransactions(@RequestParam(required = false) Integer fromBlock,
+                                                    @RequestParam(required = false) Integer toBlock) {
+        if (fromBlock == null) {
+            return transactionService.getAll();
+        }
+        return transactionService.getAll(fromBlock, checkedUpperBound(fromBlock, toBlock));
+    }
+
+    // Works for recent and archived transactions alike
+    @GetMapping("/transactions/hash/{hash}")
+    public ResponseEntity<TransactionView> getTransactionByHash(@PathVariable String hash) {
+        return transactionService.findByHash(hash)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Moves transactions of old blocks to the archive now instead of waiting for the schedule.
+     */
+    @PostMapping("/archive/run")
+    public ArchiveReportView runArchive() {
+        return archiveService.archive();
+    }
+
+    // Suggested networkFee for fast / normal / slow inclusion, from in-memory rolling percentiles
+    @GetMapping("/fees/estimate")
+    public FeeEstimateView estimateFees() {
+        return feeEstimatorService.estimate();
+    }
+
+    private static int checkedUpperBound(int fromBlock, Integer toBlock) {
+        int upTo = toBlock != null ? toBlock : Integer.MAX_VALUE;
+        if (fromBlock < 0 || upTo < fromBlock) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Block range must satisfy 0 <= fromBlock <= toBlock");
+        }
+        return upTo;
     }
-}
\ No newline at end of file
+}
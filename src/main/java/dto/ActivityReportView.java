@@ -0,0 +1,10 @@
+package com.securepayments.dto;
+
+/**
+ * Outcome of checking the activity aggregates against the raw ledger.
+ *
+ * @param repaired true if the differences found were applied as corrections
+ */
+public record ActivityReportView(long transactionsScanned, int usersChecked, int usersMismatched,
+                                 int daysChecked, int daysMismatched, boolean repaired, long durationMs) {
+}
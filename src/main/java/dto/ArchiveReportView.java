@@ -0,0 +1,8 @@
+package com.securepayments.dto;
+
+/**
+ * Outcome of one archiving run. fromBlock/toBlock are null when nothing was old enough to move.
+ */
+public record ArchiveReportView(Integer fromBlock, Integer toBlock, long transactionsArchived,
+                                int batches, long durationMs) {
+}
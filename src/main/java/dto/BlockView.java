@@ -0,0 +1,19 @@
+package com.securepayments.dto;
+
+import java.util.List;
+
+/**
+ * Read-only projection of a mined block and its transactions.
+ */
+public record BlockView(int blockIndex, String hash, String previousHash, long timestamp,
+                        int nonce, int difficulty, List<TransactionView> transactions) {
+
+    // Header-only constructor used by the JPQL constructor expression in BlockRepository
+    public BlockView(int blockIndex, String hash, String previousHash, long timestamp, int nonce, int difficulty) {
+        this(blockIndex, hash, previousHash, timestamp, nonce, difficulty, List.of());
+    }
+
+    public BlockView withTransactions(List<TransactionView> transactions) {
+        return new BlockView(blockIndex, hash, previousHash, timestamp, nonce, difficulty, transactions);
+    }
+}
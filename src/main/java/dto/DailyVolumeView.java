@@ -0,0 +1,8 @@
+package com.securepayments.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record DailyVolumeView(LocalDate date, long sentCount, BigDecimal sentTotal,
+                              long receivedCount, BigDecimal receivedTotal) {
+}
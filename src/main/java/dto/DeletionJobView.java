@@ -0,0 +1,16 @@
+package com.securepayments.dto;
+
+import java.time.Instant;
+
+/**
+ * Progress of a background user deletion, as returned by /api/users/deletions/{jobId}.
+ *
+ * @param state QUEUED, RUNNING, COMPLETED or FAILED
+ * @param pendingDeleted pending transactions sent by the user that were removed
+ * @param pendingRefunded pending transactions to the user that were removed and refunded to their senders
+ * @param minedDetached mined transactions whose link to the user was cleared (they stay in their block)
+ */
+public record DeletionJobView(String jobId, Long userId, String state,
+                              long pendingDeleted, long pendingRefunded, long minedDetached,
+                              Instant submittedAt, Instant finishedAt, String error) {
+}
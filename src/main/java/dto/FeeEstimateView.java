@@ -0,0 +1,17 @@
+package com.securepayments.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Suggested network fees, as returned by GET /api/fees/estimate.
+ *
+ * @param fast   outbids most of the current mempool and recent blocks
+ * @param normal median fee of recently mined transactions
+ * @param slow   lower quartile of recently mined transactions
+ * @param pendingTransactions fees sampled from the mempool
+ * @param sampledBlocks recent blocks in the rolling window
+ * @param sampledTransactions fees sampled from those blocks
+ */
+public record FeeEstimateView(BigDecimal fast, BigDecimal normal, BigDecimal slow,
+                              int pendingTransactions, int sampledBlocks, int sampledTransactions) {
+}
@@ -0,0 +1,12 @@
+package com.securepayments.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One ledger row as the activity rebuild sees it. Parties are null once their account
+ * has been deleted; blockIndex is null while the transaction is pending.
+ */
+public record LedgerEntryView(Long id, Long senderId, Long receiverId, BigDecimal amount,
+                              BigDecimal networkFee, Instant createdAt, Integer blockIndex) {
+}
@@ -0,0 +1,7 @@
+package com.securepayments.dto;
+
+/**
+ * Sender or receiver of a transaction, reduced to what the UI displays.
+ */
+public record PartyView(Long id, String name) {
+}
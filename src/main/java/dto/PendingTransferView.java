@@ -0,0 +1,10 @@
+package com.securepayments.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A pending transaction reduced to what is needed to refund its sender.
+ */
+public record PendingTransferView(Long id, Long senderId, BigDecimal amount, BigDecimal networkFee, Instant createdAt) {
+}
@@ -0,0 +1,24 @@
+package com.securepayments.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Read-only projection of a PaymentTransaction. Keeps the nested sender/receiver
+ * shape the UI reads (tx.sender.id), without serializing whole User entities.
+ * blockIndex is null while the transaction is pending.
+ */
+public record TransactionView(Long id, PartyView sender, PartyView receiver, BigDecimal amount,
+                              BigDecimal networkFee, String status, String transactionHash,
+                              Instant createdAt, Integer blockIndex) {
+
+    // Flat constructor used by the JPQL constructor expressions in TransactionRepository
+    public TransactionView(Long id, Long senderId, String senderName, Long receiverId, String receiverName,
+                           BigDecimal amount, BigDecimal networkFee, String status, String transactionHash,
+                           Instant createdAt, Integer blockIndex) {
+        this(id,
+                senderId != null ? new PartyView(senderId, senderName) : null,
+                receiverId != null ? new PartyView(receiverId, receiverName) : null,
+                amount, networkFee, status, transactionHash, createdAt, blockIndex);
+    }
+}
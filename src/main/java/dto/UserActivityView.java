@@ -0,0 +1,12 @@
+package com.securepayments.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Aggregates returned by GET /api/users/{id}/activity. Sent figures include pending
+ * payments; received figures only count mined ones.
+ */
+public record UserActivityView(Long userId, long sentCount, BigDecimal sentTotal, BigDecimal feesPaid,
+                               long receivedCount, BigDecimal receivedTotal, List<DailyVolumeView> daily) {
+}
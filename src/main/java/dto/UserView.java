@@ -0,0 +1,9 @@
+package com.securepayments.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only projection of a user for the API (same JSON fields as the User entity).
+ */
+public record UserView(Long id, String name, String email, BigDecimal balance) {
+}
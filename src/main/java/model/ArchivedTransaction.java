@@ -0,0 +1,54 @@
+package com.securepayments.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Cold copy of a PaymentTransaction from an old block (see ArchiveService).
+ *
+ * Compact on purpose: parties are plain id columns instead of foreign keys, so rows never
+ * pin users and no join is needed to write them. Rows are written once by INSERT ... SELECT
+ * and afterwards only have a party id cleared when that user is deleted.
+ * The MySQL range-partitioning DDL is in db/mysql/transaction_archive_partitioning.sql.
+ */
+@Entity
+@Table(name = "transaction_archive", indexes = {
+        @Index(name = "idx_archive_hash", columnList = "transactionHash"),
+        @Index(name = "idx_archive_sender", columnList = "senderId"),
+        @Index(name = "idx_archive_receiver", columnList = "receiverId")
+})
+public class ArchivedTransaction {
+
+    @EmbeddedId
+    private ArchivedTransactionId id;
+
+    private Long senderId;
+    private Long receiverId;
+
+    // Same column definitions as PaymentTransaction, so archived amounts hash identically
+    private BigDecimal amount;
+
+    @Column(precision = 19, scale = 8)
+    private BigDecimal networkFee;
+
+    private String status;
+    private String transactionHash;
+    private Instant createdAt;
+
+    @Column(length = 64)
+    private String idempotencyKey;
+
+    public ArchivedTransaction() {}
+
+    // getters
+    public ArchivedTransactionId getId() { return id; }
+    public Long getSenderId() { return senderId; }
+    public Long getReceiverId() { return receiverId; }
+    public BigDecimal getAmount() { return amount; }
+    public BigDecimal getNetworkFee() { return networkFee; }
+    public String getStatus() { return status; }
+    public String getTransactionHash() { return transactionHash; }
+    public Instant getCreatedAt() { return createdAt; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+}
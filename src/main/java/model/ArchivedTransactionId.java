@@ -0,0 +1,38 @@
+package com.securepayments.model;
+
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Key of an archived transaction. The block index leads so that the archive can be
+ * range-partitioned by it (MySQL requires the partitioning column in every unique key).
+ */
+@Embeddable
+public class ArchivedTransactionId implements Serializable {
+
+    private int blockIndex;
+    private Long id; // the id the transaction had in the hot table
+
+    public ArchivedTransactionId() {}
+
+    public ArchivedTransactionId(int blockIndex, Long id) {
+        this.blockIndex = blockIndex;
+        this.id = id;
+    }
+
+    public int getBlockIndex() { return blockIndex; }
+    public Long getId() { return id; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ArchivedTransactionId other)) return false;
+        return blockIndex == other.blockIndex && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(blockIndex, id);
+    }
+}
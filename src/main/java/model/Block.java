@@ -29,6 +29,9 @@ public class Block implements Serializable {
 
     private int nonce;
 
+    // Proof-of-work difficulty in leading zero bits (0 on blocks mined before retargeting)
+    private int difficulty;
+
     // --- Relationship ---
     @OneToMany(mappedBy = "block", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference // Correct use for the "one" side of the relationship
@@ -61,6 +64,9 @@ public class Block implements Serializable {
     public int getNonce() { return nonce; }
     public void setNonce(int nonce) { this.nonce = nonce; }
 
+    public int getDifficulty() { return difficulty; }
+    public void setDifficulty(int difficulty) { this.difficulty = difficulty; }
+
     public List<PaymentTransaction> getTransactions() { return transactions; }
     public void setTransactions(List<PaymentTransaction> transactions) { this.transactions = transactions; }
 
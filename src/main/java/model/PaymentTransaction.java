@@ -6,6 +6,7 @@ import java.math.BigDecimal;
 import java.time.Instant; // NEW: To track transaction creation time
 
 @Entity
+@Table(indexes = @Index(name = "idx_tx_hash", columnList = "transactionHash")) // GET /api/transactions/hash/{hash}
 public class PaymentTransaction {
 
     @Id
@@ -33,6 +34,10 @@ public class PaymentTransaction {
     // NEW: Timestamp for display in transaction history
     private Instant createdAt;
 
+    // Client-supplied Idempotency-Key; unique so a retried submission can never be recorded twice
+    @Column(unique = true, length = 64)
+    private String idempotencyKey;
+
     // ---------------------------------
 
     @ManyToOne
@@ -75,4 +80,7 @@ public class PaymentTransaction {
 
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
 }
\ No newline at end of file
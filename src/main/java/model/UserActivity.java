@@ -0,0 +1,46 @@
+package com.securepayments.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Running totals for one user, maintained incrementally (see ActivityService).
+ * Sent figures change when a payment is accepted, received figures when it is mined.
+ */
+@Entity
+@Table(name = "user_activity")
+public class UserActivity {
+
+    // Plain id rather than a relation: rows are only ever updated with set-based increments
+    @Id
+    private Long userId;
+
+    private long sentCount;
+    private BigDecimal sentTotal = BigDecimal.ZERO;
+
+    @Column(precision = 19, scale = 8) // same precision as PaymentTransaction.networkFee
+    private BigDecimal feesPaid = BigDecimal.ZERO;
+
+    private long receivedCount;
+    private BigDecimal receivedTotal = BigDecimal.ZERO;
+
+    public UserActivity() {}
+
+    public UserActivity(Long userId, long sentCount, BigDecimal sentTotal, BigDecimal feesPaid,
+                        long receivedCount, BigDecimal receivedTotal) {
+        this.userId = userId;
+        this.sentCount = sentCount;
+        this.sentTotal = sentTotal;
+        this.feesPaid = feesPaid;
+        this.receivedCount = receivedCount;
+        this.receivedTotal = receivedTotal;
+    }
+
+    // getters
+    public Long getUserId() { return userId; }
+    public long getSentCount() { return sentCount; }
+    public BigDecimal getSentTotal() { return sentTotal; }
+    public BigDecimal getFeesPaid() { return feesPaid; }
+    public long getReceivedCount() { return receivedCount; }
+    public BigDecimal getReceivedTotal() { return receivedTotal; }
+}
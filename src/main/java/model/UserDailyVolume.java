@@ -0,0 +1,39 @@
+package com.securepayments.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Per-user, per-day payment volume, bucketed by the UTC day the transaction was created.
+ * Received volume only counts once the transaction is mined.
+ */
+@Entity
+@Table(name = "user_daily_volume")
+public class UserDailyVolume {
+
+    @EmbeddedId
+    private UserDayId id;
+
+    private long sentCount;
+    private BigDecimal sentTotal = BigDecimal.ZERO;
+    private long receivedCount;
+    private BigDecimal receivedTotal = BigDecimal.ZERO;
+
+    public UserDailyVolume() {}
+
+    public UserDailyVolume(UserDayId id, long sentCount, BigDecimal sentTotal,
+                           long receivedCount, BigDecimal receivedTotal) {
+        this.id = id;
+        this.sentCount = sentCount;
+        this.sentTotal = sentTotal;
+        this.receivedCount = receivedCount;
+        this.receivedTotal = receivedTotal;
+    }
+
+    // getters
+    public UserDayId getId() { return id; }
+    public long getSentCount() { return sentCount; }
+    public BigDecimal getSentTotal() { return sentTotal; }
+    public long getReceivedCount() { return receivedCount; }
+    public BigDecimal getReceivedTotal() { return receivedTotal; }
+}
@@ -0,0 +1,45 @@
+package com.securepayments.model;
+
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Composite key of UserDailyVolume: one row per user per UTC day.
+ */
+@Embeddable
+public class UserDayId implements Serializable, Comparable<UserDayId> {
+
+    private Long userId;
+    private LocalDate activityDate;
+
+    public UserDayId() {}
+
+    public UserDayId(Long userId, LocalDate activityDate) {
+        this.userId = userId;
+        this.activityDate = activityDate;
+    }
+
+    public Long getUserId() { return userId; }
+    public LocalDate getActivityDate() { return activityDate; }
+
+    // Ordered by user, then day, so multi-row updates always touch rows in the same order
+    @Override
+    public int compareTo(UserDayId other) {
+        int byUser = userId.compareTo(other.userId);
+        return byUser != 0 ? byUser : activityDate.compareTo(other.activityDate);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UserDayId other)) return false;
+        return userId.equals(other.userId) && activityDate.equals(other.activityDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, activityDate);
+    }
+}
@@ -0,0 +1,113 @@
+package com.securepayments.repository;
+
+import com.securepayments.dto.LedgerEntryView;
+import com.securepayments.dto.TransactionView;
+import com.securepayments.model.ArchivedTransaction;
+import com.securepayments.model.ArchivedTransactionId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Optional;
+
+public interface ArchivedTransactionRepository extends JpaRepository<ArchivedTransaction, ArchivedTransactionId> {
+
+    /**
+     * Copies every transaction of blocks [fromBlock, toBlock] from the hot table in one
+     * set-based statement. Native because JPQL cannot insert into an embedded id.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "INSERT INTO transaction_archive (block_index, id, sender_id, receiver_id, amount, network_fee, " +
+            "status, transaction_hash, created_at, idempotency_key) " +
+            "SELECT b.block_index, pt.id, pt.sender_id, pt.receiver_id, pt.amount, pt.network_fee, " +
+            "pt.status, pt.transaction_hash, pt.created_at, pt.idempotency_key " +
+            "FROM payment_transaction pt JOIN blocks b ON b.id = pt.block_id " +
+            "WHERE b.block_index BETWEEN ?1 AND ?2")
+    int copyFromHot(int fromBlock, int toBlock);
+
+    /**
+     * Same projection as TransactionRepository.findAllViews; names come from a join on the
+     * plain id columns, so a deleted party simply shows no name.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(a.id.id, a.senderId, s.name, a.receiverId, r.name, " +
+            "a.amount, a.networkFee, a.status, a.transactionHash, a.createdAt, a.id.blockIndex) " +
+            "FROM ArchivedTransaction a " +
+            "LEFT JOIN User s ON s.id = a.senderId " +
+            "LEFT JOIN User r ON r.id = a.receiverId " +
+            "ORDER BY a.id.blockIndex, a.id.id")
+    List<TransactionView> findAllViews();
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(a.id.id, a.senderId, s.name, a.receiverId, r.name, " +
+            "a.amount, a.networkFee, a.status, a.transactionHash, a.createdAt, a.id.blockIndex) " +
+            "FROM ArchivedTransaction a " +
+            "LEFT JOIN User s ON s.id = a.senderId " +
+            "LEFT JOIN User r ON r.id = a.receiverId " +
+            "WHERE a.transactionHash = ?1 ORDER BY a.id.id")
+    List<TransactionView> findViewsByHash(String transactionHash);
+
+    // Archived transactions of blocks [fromBlock, toBlock]; a range scan on the primary key (and partitions)
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(a.id.id, a.senderId, s.name, a.receiverId, r.name, " +
+            "a.amount, a.networkFee, a.status, a.transactionHash, a.createdAt, a.id.blockIndex) " +
+            "FROM ArchivedTransaction a " +
+            "LEFT JOIN User s ON s.id = a.senderId " +
+            "LEFT JOIN User r ON r.id = a.receiverId " +
+            "WHERE a.id.blockIndex BETWEEN ?1 AND ?2 " +
+            "ORDER BY a.id.blockIndex, a.id.id")
+    List<TransactionView> findViewsInBlocks(int fromBlock, int toBlock);
+
+    /**
+     * A user's archived transactions, one query per side so each is a scan of idx_archive_sender
+     * or idx_archive_receiver rather than of every partition.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(a.id.id, a.senderId, s.name, a.receiverId, r.name, " +
+            "a.amount, a.networkFee, a.status, a.transactionHash, a.createdAt, a.id.blockIndex) " +
+            "FROM ArchivedTransaction a " +
+            "LEFT JOIN User s ON s.id = a.senderId " +
+            "LEFT JOIN User r ON r.id = a.receiverId " +
+            "WHERE a.senderId = ?1")
+    List<TransactionView> findViewsBySender(Long userId);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(a.id.id, a.senderId, s.name, a.receiverId, r.name, " +
+            "a.amount, a.networkFee, a.status, a.transactionHash, a.createdAt, a.id.blockIndex) " +
+            "FROM ArchivedTransaction a " +
+            "LEFT JOIN User s ON s.id = a.senderId " +
+            "LEFT JOIN User r ON r.id = a.receiverId " +
+            "WHERE a.receiverId = ?1")
+    List<TransactionView> findViewsByReceiver(Long userId);
+
+    /**
+     * Keyset page for the activity rebuild, in key order (block, then id) so each page is
+     * an index range scan within one or two partitions.
+     */
+    @Query("SELECT new com.securepayments.dto.LedgerEntryView(a.id.id, a.senderId, a.receiverId, a.amount, " +
+            "a.networkFee, a.createdAt, a.id.blockIndex) " +
+            "FROM ArchivedTransaction a " +
+            "WHERE a.id.blockIndex > ?1 OR (a.id.blockIndex = ?1 AND a.id.id > ?2) " +
+            "ORDER BY a.id.blockIndex, a.id.id")
+    List<LedgerEntryView> findLedgerEntriesAfter(int afterBlock, Long afterId, Pageable page);
+
+    @Query("SELECT MIN(a.id.blockIndex) FROM ArchivedTransaction a")
+    Optional<Integer> findMinBlockIndex();
+
+    @Query("SELECT MAX(a.id.blockIndex) FROM ArchivedTransaction a")
+    Optional<Integer> findMaxBlockIndex();
+
+    /**
+     * Clears a deleted user from one range of archived blocks (one partition-aligned chunk).
+     */
+    @Modifying
+    @Query("UPDATE ArchivedTransaction a SET a.senderId = NULL WHERE a.senderId = ?1 AND a.id.blockIndex BETWEEN ?2 AND ?3")
+    int detachSender(Long userId, int fromBlock, int toBlock);
+
+    @Modifying
+    @Query("UPDATE ArchivedTransaction a SET a.receiverId = NULL WHERE a.receiverId = ?1 AND a.id.blockIndex BETWEEN ?2 AND ?3")
+    int detachReceiver(Long userId, int fromBlock, int toBlock);
+}
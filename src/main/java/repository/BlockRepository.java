@@ -1,11 +1,14 @@
 package com.securepayments.repository;
 
+import com.securepayments.dto.BlockView;
 import com.securepayments.model.Block;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query; // <-- New Import
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List; // <-- New Import
+import java.util.Optional;
 
 @Repository
 public interface BlockRepository extends JpaRepository<Block, Long> {
@@ -17,6 +20,21 @@ public interface BlockRepository extends JpaRepository<Block, Long> {
     @Query("SELECT b FROM Block b LEFT JOIN FETCH b.transactions t ORDER BY b.blockIndex")
     List<Block> findAllWithTransactions();
 
+    /**
+     * Headers (no transactions) of blocks [fromBlock, toBlock], as read-only projections for GET /api/blockchain.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.BlockView(b.blockIndex, b.hash, b.previousHash, " +
+            "b.timestamp, b.nonce, b.difficulty) FROM Block b WHERE b.blockIndex BETWEEN ?1 AND ?2 ORDER BY b.blockIndex")
+    List<BlockView> findHeaderViewsInBlocks(int fromBlock, int toBlock);
+
     // Returns the latest block by blockIndex
     Block findTopByOrderByBlockIndexDesc();
+
+    // Newest block mined before the given time (epoch millis); bounds what the archiver may move
+    @Query("SELECT MAX(b.blockIndex) FROM Block b WHERE b.timestamp < ?1")
+    Optional<Integer> findMaxBlockIndexBefore(long timestamp);
+
+    // Used to find the first block of a difficulty retarget window
+    Block findByBlockIndex(int blockIndex);
 }
\ No newline at end of file
@@ -1,32 +1,85 @@
 package com.securepayments.repository;
 
+import com.securepayments.dto.LedgerEntryView;
+import com.securepayments.dto.PendingTransferView;
+import com.securepayments.dto.TransactionView;
 import com.securepayments.model.PaymentTransaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface TransactionRepository extends JpaRepository<PaymentTransaction, Long> {
 
     /**
-     * Finds all transactions, eagerly fetching sender, receiver, and block.
-     * FIX: Added DISTINCT to prevent duplicate parent rows (Cartesian Product)
-     * when multiple child entities (which is indirectly happening here) are joined.
+     * Read-only projection of every transaction for GET /api/transactions: only the
+     * columns the UI shows, no managed entities and no User/Block object graphs.
      */
-    @Query("SELECT DISTINCT pt FROM PaymentTransaction pt " +
-            "LEFT JOIN FETCH pt.sender s " +
-            "LEFT JOIN FETCH pt.receiver r " +
-            "LEFT JOIN FETCH pt.block b")
-    List<PaymentTransaction> findAllEagerly();
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(pt.id, s.id, s.name, r.id, r.name, " +
+            "pt.amount, pt.networkFee, pt.status, pt.transactionHash, pt.createdAt, b.blockIndex) " +
+            "FROM PaymentTransaction pt " +
+            "LEFT JOIN pt.sender s " +
+            "LEFT JOIN pt.receiver r " +
+            "LEFT JOIN pt.block b " +
+            "ORDER BY pt.id")
+    List<TransactionView> findAllViews();
+
+    // One user's transactions, sent or received, for their history; the archive has the same pair of queries
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(pt.id, s.id, s.name, r.id, r.name, " +
+            "pt.amount, pt.networkFee, pt.status, pt.transactionHash, pt.createdAt, b.blockIndex) " +
+            "FROM PaymentTransaction pt " +
+            "LEFT JOIN pt.sender s " +
+            "LEFT JOIN pt.receiver r " +
+            "LEFT JOIN pt.block b " +
+            "WHERE s.id = ?1 OR r.id = ?1 " +
+            "ORDER BY pt.id")
+    List<TransactionView> findViewsByUser(Long userId);
+
+    /**
+     * Same projection restricted to mined transactions, grouped for the blockchain view.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(pt.id, s.id, s.name, r.id, r.name, " +
+            "pt.amount, pt.networkFee, pt.status, pt.transactionHash, pt.createdAt, b.blockIndex) " +
+            "FROM PaymentTransaction pt " +
+            "JOIN pt.block b " +
+            "LEFT JOIN pt.sender s " +
+            "LEFT JOIN pt.receiver r " +
+            "ORDER BY b.blockIndex, pt.id")
+    List<TransactionView> findMinedViews();
+
+    // Mined transactions of blocks [fromBlock, toBlock] only, for a slice of the blockchain view
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(pt.id, s.id, s.name, r.id, r.name, " +
+            "pt.amount, pt.networkFee, pt.status, pt.transactionHash, pt.createdAt, b.blockIndex) " +
+            "FROM PaymentTransaction pt " +
+            "JOIN pt.block b " +
+            "LEFT JOIN pt.sender s " +
+            "LEFT JOIN pt.receiver r " +
+            "WHERE b.blockIndex BETWEEN ?1 AND ?2 " +
+            "ORDER BY b.blockIndex, pt.id")
+    List<TransactionView> findMinedViewsInBlocks(int fromBlock, int toBlock);
 
     /**
      * Finds all pending transactions, eagerly fetching sender and receiver.
      * FIX: Added DISTINCT for safety, preventing duplication during processing.
+     * Ordered by id because the block hash covers the transactions in this order,
+     * and chain validation has to reproduce it.
      */
     @Query("SELECT DISTINCT pt FROM PaymentTransaction pt " +
             "LEFT JOIN FETCH pt.sender s " +
             "LEFT JOIN FETCH pt.receiver r " +
-            "WHERE pt.block IS NULL")
+            "WHERE pt.block IS NULL " +
+            "ORDER BY pt.id")
     List<PaymentTransaction> findByBlockIsNullEagerly();
 
 
@@ -36,8 +89,125 @@ public interface TransactionRepository extends JpaRepository<PaymentTransaction,
     List<PaymentTransaction> findByBlockIsNull();
 
     /**
-     * Deletes all transactions where the given ID is either the sender or the receiver.
+     * Counts pending transactions (the mempool depth) without loading them.
+     */
+    long countByBlockIsNull();
+
+    /**
+     * Fees of the mempool, read once at startup to seed the fee estimator.
+     */
+    @Query("SELECT pt.networkFee FROM PaymentTransaction pt WHERE pt.block IS NULL")
+    List<BigDecimal> findPendingFees();
+
+    /**
+     * Fees of one mined block, read at startup to seed the fee estimator's block window.
+     */
+    @Query("SELECT pt.networkFee FROM PaymentTransaction pt WHERE pt.block.blockIndex = ?1")
+    List<BigDecimal> findFeesByBlockIndex(int blockIndex);
+
+    /**
+     * Lookup by transaction hash for GET /api/transactions/hash/{hash}; ArchivedTransactionRepository
+     * has the same query for transactions already moved out of this table.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.securepayments.dto.TransactionView(pt.id, s.id, s.name, r.id, r.name, " +
+            "pt.amount, pt.networkFee, pt.status, pt.transactionHash, pt.createdAt, b.blockIndex) " +
+            "FROM PaymentTransaction pt " +
+            "LEFT JOIN pt.sender s " +
+            "LEFT JOIN pt.receiver r " +
+            "LEFT JOIN pt.block b " +
+            "WHERE pt.transactionHash = ?1 ORDER BY pt.id")
+    List<TransactionView> findViewsByHash(String transactionHash);
+
+    /**
+     * Finds the transaction recorded for a client's Idempotency-Key, if any.
+     */
+    Optional<PaymentTransaction> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Keyset page of the ledger for the activity rebuild: rows with id > afterId, in id order.
+     */
+    @Query("SELECT new com.securepayments.dto.LedgerEntryView(pt.id, s.id, r.id, pt.amount, pt.networkFee, " +
+            "pt.createdAt, b.blockIndex) " +
+            "FROM PaymentTransaction pt " +
+            "LEFT JOIN pt.sender s " +
+            "LEFT JOIN pt.receiver r " +
+            "LEFT JOIN pt.block b " +
+            "WHERE pt.id > ?1 ORDER BY pt.id")
+    List<LedgerEntryView> findLedgerEntriesAfter(Long afterId, Pageable page);
+
+    // =========================================================================
+    // ARCHIVAL (see ArchiveService)
+    // =========================================================================
+
+    /**
+     * Oldest block that still has transactions in this table, i.e. where archiving resumes.
+     */
+    @Query("SELECT MIN(b.blockIndex) FROM PaymentTransaction pt JOIN pt.block b")
+    Optional<Integer> findMinMinedBlockIndex();
+
+    /**
+     * Locks the transactions of blocks [fromBlock, toBlock] before they are copied, so a
+     * concurrent detach cannot change a row between the copy and the delete.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT pt.id FROM PaymentTransaction pt WHERE pt.block.blockIndex BETWEEN ?1 AND ?2")
+    List<Long> lockMinedInBlocks(int fromBlock, int toBlock);
+
+    @Modifying
+    @Query("DELETE FROM PaymentTransaction pt WHERE pt.block.id IN " +
+            "(SELECT b.id FROM Block b WHERE b.blockIndex BETWEEN ?1 AND ?2)")
+    int deleteMinedInBlocks(int fromBlock, int toBlock);
+
+    // =========================================================================
+    // CHUNKED USER DELETION (see UserDeletionService)
+    // =========================================================================
+
+    /**
+     * Up to one page of pending transactions sent by the user. Locked so mining cannot
+     * pick them up while the chunk that deletes them is in flight.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.securepayments.dto.PendingTransferView(pt.id, pt.sender.id, pt.amount, pt.networkFee, pt.createdAt) " +
+            "FROM PaymentTransaction pt WHERE pt.block IS NULL AND pt.sender.id = ?1 ORDER BY pt.id")
+    List<PendingTransferView> findPendingTransfersBySender(Long senderId, Pageable page);
+
+    /**
+     * Up to one page of pending transactions received by the user, with what is needed to
+     * refund their senders. Locked for the same reason as findPendingTransfersBySender.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.securepayments.dto.PendingTransferView(pt.id, pt.sender.id, pt.amount, pt.networkFee, pt.createdAt) " +
+            "FROM PaymentTransaction pt WHERE pt.block IS NULL AND pt.receiver.id = ?1 ORDER BY pt.id")
+    List<PendingTransferView> findPendingTransfersByReceiver(Long receiverId, Pageable page);
+
+    @Query("SELECT pt.id FROM PaymentTransaction pt WHERE pt.block IS NOT NULL AND pt.sender.id = ?1 ORDER BY pt.id")
+    List<Long> findMinedIdsBySender(Long senderId, Pageable page);
+
+    @Query("SELECT pt.id FROM PaymentTransaction pt WHERE pt.block IS NOT NULL AND pt.receiver.id = ?1 ORDER BY pt.id")
+    List<Long> findMinedIdsByReceiver(Long receiverId, Pageable page);
+
+    /**
+     * Set-based delete of pending transactions; mined ones are never touched.
+     */
+    @Modifying
+    @Query("DELETE FROM PaymentTransaction pt WHERE pt.id IN ?1 AND pt.block IS NULL")
+    int deletePendingByIdIn(Collection<Long> ids);
+
+    /**
+     * Mined transactions stay in their block (the block hash covers them); only the link
+     * to the deleted account is dropped.
+     */
+    @Modifying
+    @Query("UPDATE PaymentTransaction pt SET pt.sender = NULL WHERE pt.id IN ?1")
+    int detachSender(Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE PaymentTransaction pt SET pt.receiver = NULL WHERE pt.id IN ?1")
+    int detachReceiver(Collection<Long> ids);
+
+    /**
+     * Transactions still referencing the user, checked before the user row itself is removed.
      */
-    @Transactional
-    void deleteBySenderIdOrReceiverId(Long senderId, Long receiverId);
-}
\ No newline at end of file
+    long countBySenderIdOrReceiverId(Long senderId, Long receiverId);
+}
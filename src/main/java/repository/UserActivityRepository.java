@@ -0,0 +1,21 @@
+package com.securepayments.repository;
+
+import com.securepayments.model.UserActivity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import java.math.BigDecimal;
+
+public interface UserActivityRepository extends JpaRepository<UserActivity, Long> {
+
+    /**
+     * Adds the deltas to the user's totals in one statement.
+     * @return 0 if the user has no row yet (the caller then inserts one).
+     */
+    @Modifying
+    @Query("UPDATE UserActivity a SET a.sentCount = a.sentCount + ?2, a.sentTotal = a.sentTotal + ?3, " +
+            "a.feesPaid = a.feesPaid + ?4, a.receivedCount = a.receivedCount + ?5, " +
+            "a.receivedTotal = a.receivedTotal + ?6 WHERE a.userId = ?1")
+    int addDeltas(Long userId, long sentCount, BigDecimal sentTotal, BigDecimal feesPaid,
+                  long receivedCount, BigDecimal receivedTotal);
+}
@@ -0,0 +1,30 @@
+package com.securepayments.repository;
+
+import com.securepayments.model.UserDailyVolume;
+import com.securepayments.model.UserDayId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface UserDailyVolumeRepository extends JpaRepository<UserDailyVolume, UserDayId> {
+
+    /**
+     * Same as UserActivityRepository.addDeltas, for one user's day.
+     */
+    @Modifying
+    @Query("UPDATE UserDailyVolume v SET v.sentCount = v.sentCount + ?3, v.sentTotal = v.sentTotal + ?4, " +
+            "v.receivedCount = v.receivedCount + ?5, v.receivedTotal = v.receivedTotal + ?6 " +
+            "WHERE v.id.userId = ?1 AND v.id.activityDate = ?2")
+    int addDeltas(Long userId, LocalDate activityDate, long sentCount, BigDecimal sentTotal,
+                  long receivedCount, BigDecimal receivedTotal);
+
+    @Query("SELECT v FROM UserDailyVolume v WHERE v.id.userId = ?1 AND v.id.activityDate >= ?2 ORDER BY v.id.activityDate")
+    List<UserDailyVolume> findByUserSince(Long userId, LocalDate from);
+
+    @Modifying
+    @Query("DELETE FROM UserDailyVolume v WHERE v.id.userId = ?1")
+    int deleteByUserId(Long userId);
+}
@@ -1,10 +1,16 @@
 package com.securepayments.repository;
 
+import com.securepayments.dto.UserView;
 import com.securepayments.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query; // Needed for the specific query style
+import org.springframework.transaction.annotation.Transactional;
 import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -15,6 +21,32 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("select u from User u where u.id = ?1") // Use JQPL to ensure correct query execution with Lock
     Optional<User> findLockedById(Long id);
 
+    // Locks a set of users in ascending id order, so concurrent batches acquire locks consistently
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.id in ?1 order by u.id")
+    List<User> findAllLockedByIdIn(Collection<Long> ids);
+
     // This method is correctly defined, used by TransactionService
     Optional<User> findById(Long id);
+
+    // --- Read-only projections backing the AccountCache ---
+    @Transactional(readOnly = true)
+    @Query("select new com.securepayments.dto.UserView(u.id, u.name, u.email, u.balance) from User u where u.id = ?1")
+    Optional<UserView> findViewById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.securepayments.dto.UserView(u.id, u.name, u.email, u.balance) from User u order by u.id")
+    List<UserView> findAllViews();
+
+    @Transactional(readOnly = true)
+    @Query("select new com.securepayments.dto.UserView(u.id, u.name, u.email, u.balance) from User u where u.id in ?1")
+    List<UserView> findViewsByIdIn(Collection<Long> ids);
+
+    /**
+     * Atomically adds to a balance in the database, without reading the row into the
+     * persistence context first. Returns the number of rows updated (0 if the user is gone).
+     */
+    @Modifying
+    @Query("update User u set u.balance = u.balance + ?2 where u.id = ?1")
+    int creditBalance(Long id, BigDecimal amount);
 }
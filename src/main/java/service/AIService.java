@@ -2,27 +2,39 @@ package com.securepayments.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value; // NEW IMPORT
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 
+// Created on the first analysis request, with its RestTemplate; the controller holds a lazy proxy
 @Service
+@Lazy
 public class AIService {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final RateLimiterService rateLimiterService;
+    private final MeterRegistry meterRegistry;
 
     // 1. INJECT KEY: Reads the value from application.properties
     @Value("${gemini.api.key}")
     private String geminiApiKey;
 
-    private final String GEMINI_API_BASE_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash-preview-09-2025:generateContent?key=";
+    // Overridable so the load-test profile can point at a local stub server
+    @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash-preview-09-2025:generateContent?key=}")
+    private String geminiApiBaseUrl;
 
-    public AIService(RestTemplate restTemplate, ObjectMapper objectMapper) {
+    public AIService(RestTemplate restTemplate, ObjectMapper objectMapper,
+                     RateLimiterService rateLimiterService, MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
+        this.rateLimiterService = rateLimiterService;
+        this.meterRegistry = meterRegistry;
     }
 
     public String analyzeTransaction(Long senderId, Long receiverId, BigDecimal amount, BigDecimal networkFee) {
@@ -32,7 +44,7 @@ public class AIService {
             return "{\"summary\":\"AI analysis bypassed. API key not set.\", \"risk\":\"LOW\"}";
         }
 
-        String apiUrlWithKey = GEMINI_API_BASE_URL + this.geminiApiKey; // 3. Use the injected key in the URL
+        String apiUrlWithKey = geminiApiBaseUrl + this.geminiApiKey; // 3. Use the injected key in the URL
 
         // 1. Construct the System Instruction and User Query
         String systemPrompt = "You are a specialized financial risk analyst for a secure payment platform. Your task is to provide a concise, single-paragraph risk analysis and a classification score (LOW, MEDIUM, or HIGH) based on the transaction details. Be highly security-focused and use professional but simple language.";
@@ -61,9 +73,23 @@ public class AIService {
             """, userQuery, systemPrompt);
 
 
+        // Global Gemini quota; a 429 is more honest than the MEDIUM fail-safe below
+        rateLimiterService.acquireUpstream(RateLimiterService.GEMINI);
+
         try {
-            // 3. Send the request to the Gemini API
-            String apiResponse = restTemplate.postForObject(apiUrlWithKey, jsonPayload, String.class);
+            // 3. Send the request to the Gemini API (latency recorded under "upstream.requests")
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "error";
+            String apiResponse;
+            try {
+                apiResponse = restTemplate.postForObject(apiUrlWithKey, jsonPayload, String.class);
+                outcome = "success";
+            } finally {
+                sample.stop(Timer.builder("upstream.requests")
+                        .description("Latency of calls to external APIs")
+                        .tags("provider", "gemini", "operation", "generateContent", "outcome", outcome)
+                        .register(meterRegistry));
+            }
 
             // 4. Parse the JSON response to extract the structured text part
             JsonNode root = objectMapper.readTree(apiResponse);
@@ -0,0 +1,190 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.UserView;
+import com.securepayments.repository.UserRepository;
+import com.securepayments.util.AfterCommit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, read-through cache of user accounts for the read endpoints
+ * (GET /api/users, /api/users/{id}, /api/users/{id}/balance). Entries are immutable
+ * UserView projections, so they can be handed out without copying.
+ *
+ * Balances only change in createTransaction (sender debit) and mining (receiver credit);
+ * both invalidate the affected ids AFTER their transaction commits, before control
+ * returns to the caller, so a client never reads a balance older than its own last write.
+ *
+ * Versioning: every invalidation takes a new sequence number and leaves a tombstone
+ * carrying it. A load records the sequence before it queries the database and may only
+ * install its result if no invalidation for that id happened in the meantime; this stops
+ * a slow reader from putting back a balance that a concurrent commit already replaced.
+ *
+ * Debits never read from here; they always lock the row with findLockedById.
+ */
+@Service
+public class AccountCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${accounts.cache.max-entries:10000}")
+    private int maxEntries;
+
+    // --- Cache State ---
+    private final Map<Long, CacheEntry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong writeSequence = new AtomicLong();
+    // Bumped when entries (and so tombstones) are dropped for size; loads that started before must not install
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Ids of all users, for listUsers(); invalidated when users are created or deleted
+    private final AtomicLong membershipVersion = new AtomicLong();
+    private volatile Membership allIds;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public AccountCache(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.hits = Counter.builder("accounts.cache.requests")
+                .tag("result", "hit")
+                .description("User lookups served from the account cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("accounts.cache.requests")
+                .tag("result", "miss")
+                .description("User lookups that went to the database")
+                .register(meterRegistry);
+        Gauge.builder("accounts.cache.size", entries, Map::size)
+                .description("Accounts (including tombstones) held in the cache")
+                .register(meterRegistry);
+    }
+
+    public Optional<UserView> findById(Long id) {
+        CacheEntry entry = entries.get(id);
+        if (entry != null && entry.snapshot != null) {
+            hits.increment();
+            return Optional.of(entry.snapshot);
+        }
+        misses.increment();
+
+        long startSequence = writeSequence.get();
+        long startEvictions = evictions.get();
+        Optional<UserView> loaded = userRepository.findViewById(id);
+        loaded.ifPresent(user -> install(user, startSequence, startEvictions));
+        return loaded;
+    }
+
+    public List<UserView> findAll() {
+        Membership members = allIds;
+        if (members != null && members.version == membershipVersion.get()) {
+            List<UserView> users = new ArrayList<>(members.ids.size());
+            List<Long> missing = new ArrayList<>();
+            for (Long id : members.ids) {
+                CacheEntry entry = entries.get(id);
+                if (entry != null && entry.snapshot != null) {
+                    users.add(entry.snapshot);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (missing.isEmpty()) {
+                hits.increment();
+                return users;
+            }
+            // Only the invalidated accounts go back to the database, in one query
+            misses.increment();
+            users.addAll(loadAndInstall(() -> userRepository.findViewsByIdIn(missing)));
+            users.sort(Comparator.comparing(UserView::id));
+            return users;
+        }
+
+        misses.increment();
+        long startMembership = membershipVersion.get();
+        List<UserView> users = loadAndInstall(userRepository::findAllViews);
+        if (membershipVersion.get() == startMembership) {
+            allIds = new Membership(startMembership, users.stream().map(UserView::id).toList());
+        }
+        return users;
+    }
+
+    /**
+     * Invalidates the given accounts once the current transaction commits (immediately if
+     * there is none). Called from every path that changes a balance.
+     */
+    public void invalidateAfterCommit(Collection<Long> ids) {
+        List<Long> affected = List.copyOf(ids);
+        AfterCommit.run(() -> affected.forEach(this::invalidate));
+    }
+
+    /**
+     * Same as invalidateAfterCommit, for paths that add or remove users.
+     */
+    public void membershipChangedAfterCommit(Collection<Long> ids) {
+        List<Long> affected = List.copyOf(ids);
+        AfterCommit.run(() -> {
+            affected.forEach(this::invalidate);
+            membershipVersion.incrementAndGet();
+            allIds = null;
+        });
+    }
+
+    private void invalidate(Long id) {
+        long sequence = writeSequence.incrementAndGet();
+        entries.put(id, new CacheEntry(sequence, null));
+        enforceBound();
+    }
+
+    private List<UserView> loadAndInstall(Supplier<List<UserView>> loader) {
+        long startSequence = writeSequence.get();
+        long startEvictions = evictions.get();
+        List<UserView> loaded = loader.get();
+        for (UserView user : loaded) {
+            install(user, startSequence, startEvictions);
+        }
+        return loaded;
+    }
+
+    private void install(UserView snapshot, long startSequence, long startEvictions) {
+        entries.compute(snapshot.id(), (id, current) -> {
+            if (current == null) {
+                // No tombstone: safe unless one may have been evicted while we were loading
+                return evictions.get() == startEvictions ? new CacheEntry(0, snapshot) : null;
+            }
+            if (current.invalidatedAt > startSequence) {
+                return current; // a commit invalidated this account after our read began
+            }
+            return new CacheEntry(current.invalidatedAt, snapshot);
+        });
+        enforceBound();
+    }
+
+    private void enforceBound() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        evictions.incrementAndGet();
+        Iterator<Long> it = entries.keySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        allIds = null;
+    }
+
+    private record CacheEntry(long invalidatedAt, UserView snapshot) {}
+
+    private record Membership(long version, List<Long> ids) {}
+}
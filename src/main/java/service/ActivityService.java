@@ -0,0 +1,373 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.ActivityReportView;
+import com.securepayments.dto.DailyVolumeView;
+import com.securepayments.dto.LedgerEntryView;
+import com.securepayments.dto.PendingTransferView;
+import com.securepayments.dto.UserActivityView;
+import com.securepayments.model.PaymentTransaction;
+import com.securepayments.model.UserActivity;
+import com.securepayments.model.UserDailyVolume;
+import com.securepayments.model.UserDayId;
+import com.securepayments.repository.ArchivedTransactionRepository;
+import com.securepayments.repository.TransactionRepository;
+import com.securepayments.repository.UserActivityRepository;
+import com.securepayments.repository.UserDailyVolumeRepository;
+import com.securepayments.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-user activity aggregates (totals and daily volume), kept in step with the ledger.
+ *
+ * Every change is applied as a set-based increment inside the same database transaction
+ * as the ledger change it describes, so aggregates and ledger commit or roll back
+ * together and the cost per payment is O(1), independent of history:
+ * - payment accepted (direct or batched): sender's sent count/total and fees
+ * - block mined: receivers' received count/total
+ * - pending payment cancelled by a user deletion: the sender's sent figures are reversed
+ *
+ * A missing row is inserted on first use. Two inserts for the same user cannot collide
+ * because every writer holds that user's row lock first: payments and settlement take it
+ * (findLockedById / creditBalance) before they get here, and a repair takes the locks
+ * of every user it corrects, in ascending id order like the batch path.
+ *
+ * verify() recomputes everything from the ledger and compares; with repair it applies
+ * the differences as increments, which commute with concurrent payments. It is a full
+ * scan, so on-demand runs (requestVerify) are refused while one is in progress or
+ * within activity.verify.min-interval-ms of the last one.
+ */
+@Service
+public class ActivityService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityService.class);
+
+    private final UserActivityRepository activityRepository;
+    private final UserDailyVolumeRepository dailyVolumeRepository;
+    private final TransactionRepository transactionRepository;
+    private final ArchivedTransactionRepository archiveRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final Counter mismatches;
+
+    // Serializes verify runs, so two repairs can never apply the same correction twice
+    private final ReentrantLock verifyLock = new ReentrantLock();
+    private volatile long lastVerifiedNanos;
+    private volatile boolean verifiedOnce;
+
+    @Value("${activity.verify.chunk-size:1000}")
+    private int chunkSize;
+
+    // Minimum gap between the end of one verify run and an on-demand one
+    @Value("${activity.verify.min-interval-ms:300000}")
+    private long minIntervalMs;
+
+    public ActivityService(UserActivityRepository activityRepository, UserDailyVolumeRepository dailyVolumeRepository,
+                           TransactionRepository transactionRepository, ArchivedTransactionRepository archiveRepository,
+                           UserRepository userRepository, TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry) {
+        this.activityRepository = activityRepository;
+        this.dailyVolumeRepository = dailyVolumeRepository;
+        this.transactionRepository = transactionRepository;
+        this.archiveRepository = archiveRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+
+        // Ledger scan and stored aggregates must come from the same snapshot to be comparable
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+
+        this.mismatches = Counter.builder("activity.verify.mismatches")
+                .description("User and day aggregates found out of step with the ledger")
+                .register(meterRegistry);
+    }
+
+    // =========================================================================
+    // INCREMENTAL MAINTENANCE (must run inside the caller's transaction)
+    // =========================================================================
+
+    public void recordPayments(Collection<PaymentTransaction> accepted) {
+        Deltas deltas = new Deltas();
+        for (PaymentTransaction tx : accepted) {
+            deltas.sent(tx.getSender().getId(), tx.getCreatedAt(), tx.getAmount(), tx.getNetworkFee(), 1);
+        }
+        apply(deltas);
+    }
+
+    public void recordSettlement(Collection<PaymentTransaction> mined) {
+        Deltas deltas = new Deltas();
+        for (PaymentTransaction tx : mined) {
+            deltas.received(tx.getReceiver().getId(), tx.getCreatedAt(), tx.getAmount(), 1);
+        }
+        apply(deltas);
+    }
+
+    public void reversePendingPayments(Collection<PendingTransferView> cancelled) {
+        Deltas deltas = new Deltas();
+        for (PendingTransferView t : cancelled) {
+            deltas.sent(t.senderId(), t.createdAt(), t.amount(), t.networkFee(), -1);
+        }
+        apply(deltas);
+    }
+
+    public void deleteUser(Long userId) {
+        activityRepository.findById(userId).ifPresent(activityRepository::delete);
+        dailyVolumeRepository.deleteByUserId(userId);
+    }
+
+    // =========================================================================
+    // READS
+    // =========================================================================
+
+    @Transactional(readOnly = true)
+    public UserActivityView getActivity(Long userId, int days) {
+        UserActivity totals = activityRepository.findById(userId)
+                .orElseGet(() -> new UserActivity(userId, 0, BigDecimal.ZERO, BigDecimal.ZERO, 0, BigDecimal.ZERO));
+        LocalDate from = LocalDate.now(ZoneOffset.UTC).minusDays(Math.max(0, days - 1));
+        List<DailyVolumeView> daily = dailyVolumeRepository.findByUserSince(userId, from).stream()
+                .map(v -> new DailyVolumeView(v.getId().getActivityDate(), v.getSentCount(), v.getSentTotal(),
+                        v.getReceivedCount(), v.getReceivedTotal()))
+                .toList();
+        return new UserActivityView(userId, totals.getSentCount(), totals.getSentTotal(), totals.getFeesPaid(),
+                totals.getReceivedCount(), totals.getReceivedTotal(), daily);
+    }
+
+    // =========================================================================
+    // REBUILD / VERIFY
+    // =========================================================================
+
+    /**
+     * Recomputes all aggregates from the ledger and compares them with the stored ones.
+     * Waits for a run already in progress rather than overlapping it.
+     * @param repair apply the differences found
+     */
+    public ActivityReportView verify(boolean repair) {
+        verifyLock.lock();
+        try {
+            return runVerify(repair);
+        } finally {
+            verifyLock.unlock();
+        }
+    }
+
+    /**
+     * verify() for untrusted callers: refused instead of queued while a run is in progress,
+     * and refused within min-interval-ms of the last run.
+     * @throws RateLimitExceededException with the time left until a run would be accepted.
+     */
+    public ActivityReportView requestVerify(boolean repair) {
+        long minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+        if (!verifyLock.tryLock()) {
+            throw new RateLimitExceededException("activity verify", minIntervalNanos);
+        }
+        try {
+            long sinceLast = System.nanoTime() - lastVerifiedNanos;
+            if (verifiedOnce && sinceLast < minIntervalNanos) {
+                throw new RateLimitExceededException("activity verify", minIntervalNanos - sinceLast);
+            }
+            return runVerify(repair);
+        } finally {
+            verifyLock.unlock();
+        }
+    }
+
+    private ActivityReportView runVerify(boolean repair) {
+        long start = System.currentTimeMillis();
+        try {
+            Comparison comparison = snapshotTemplate.execute(status -> compareWithLedger());
+
+            int usersMismatched = comparison.corrections.users.size();
+            int daysMismatched = comparison.corrections.days.size();
+            mismatches.increment(usersMismatched + daysMismatched);
+
+            boolean repaired = false;
+            if (repair && (usersMismatched > 0 || daysMismatched > 0)) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Same lock order as the payment paths, so a missing row is never inserted twice
+                    userRepository.findAllLockedByIdIn(comparison.corrections.userIds());
+                    apply(comparison.corrections);
+                });
+                repaired = true;
+            }
+            return new ActivityReportView(comparison.transactionsScanned, comparison.usersChecked, usersMismatched,
+                    comparison.daysChecked, daysMismatched, repaired, System.currentTimeMillis() - start);
+        } finally {
+            lastVerifiedNanos = System.nanoTime();
+            verifiedOnce = true;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${activity.verify.initial-delay-ms:60000}",
+            fixedDelayString = "${activity.verify.interval-ms:21600000}")
+    void scheduledVerify() {
+        ActivityReportView report = verify(true);
+        if (report.usersMismatched() > 0 || report.daysMismatched() > 0) {
+            log.warn("Activity aggregates repaired: {}", report);
+        }
+    }
+
+    private Comparison compareWithLedger() {
+        // Expected = ledger (hot table and archive); corrections = expected - stored.
+        // The snapshot keeps a batch moving to the archive from being seen in both or neither.
+        Deltas corrections = new Deltas();
+        long scanned = 0;
+
+        long afterId = 0;
+        List<LedgerEntryView> page;
+        do {
+            page = transactionRepository.findLedgerEntriesAfter(afterId, PageRequest.of(0, chunkSize));
+            page.forEach(corrections::expect);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).id();
+            }
+            scanned += page.size();
+        } while (page.size() == chunkSize);
+
+        int afterBlock = 0;
+        afterId = 0;
+        do {
+            page = archiveRepository.findLedgerEntriesAfter(afterBlock, afterId, PageRequest.of(0, chunkSize));
+            page.forEach(corrections::expect);
+            if (!page.isEmpty()) {
+                LedgerEntryView last = page.get(page.size() - 1);
+                afterBlock = last.blockIndex();
+                afterId = last.id();
+            }
+            scanned += page.size();
+        } while (page.size() == chunkSize);
+
+        Set<Long> users = new HashSet<>(corrections.users.keySet());
+        for (UserActivity stored : activityRepository.findAll()) {
+            users.add(stored.getUserId());
+            corrections.user(stored.getUserId()).subtract(stored.getSentCount(), stored.getSentTotal(),
+                    stored.getFeesPaid(), stored.getReceivedCount(), stored.getReceivedTotal());
+        }
+        Set<UserDayId> days = new HashSet<>(corrections.days.keySet());
+        for (UserDailyVolume stored : dailyVolumeRepository.findAll()) {
+            days.add(stored.getId());
+            corrections.day(stored.getId()).subtract(stored.getSentCount(), stored.getSentTotal(),
+                    BigDecimal.ZERO, stored.getReceivedCount(), stored.getReceivedTotal());
+        }
+
+        corrections.users.values().removeIf(Delta::isZero);
+        corrections.days.values().removeIf(Delta::isZero);
+        return new Comparison(scanned, users.size(), days.size(), corrections);
+    }
+
+    private void apply(Deltas deltas) {
+        deltas.users.forEach((userId, d) -> {
+            if (activityRepository.addDeltas(userId, d.sentCount, d.sentTotal, d.feesPaid,
+                    d.receivedCount, d.receivedTotal) == 0) {
+                activityRepository.save(new UserActivity(userId, d.sentCount, d.sentTotal, d.feesPaid,
+                        d.receivedCount, d.receivedTotal));
+            }
+        });
+        deltas.days.forEach((id, d) -> {
+            if (dailyVolumeRepository.addDeltas(id.getUserId(), id.getActivityDate(), d.sentCount, d.sentTotal,
+                    d.receivedCount, d.receivedTotal) == 0) {
+                dailyVolumeRepository.save(new UserDailyVolume(id, d.sentCount, d.sentTotal,
+                        d.receivedCount, d.receivedTotal));
+            }
+        });
+    }
+
+    private static LocalDate utcDay(Instant createdAt) {
+        return (createdAt != null ? createdAt : Instant.EPOCH).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private record Comparison(long transactionsScanned, int usersChecked, int daysChecked, Deltas corrections) {}
+
+    // Pending increments, grouped per user and per user-day, in ascending key order
+    private static class Deltas {
+        final Map<Long, Delta> users = new TreeMap<>();
+        final Map<UserDayId, Delta> days = new TreeMap<>();
+
+        Delta user(Long userId) {
+            return users.computeIfAbsent(userId, id -> new Delta());
+        }
+
+        Delta day(UserDayId id) {
+            return days.computeIfAbsent(id, key -> new Delta());
+        }
+
+        Set<Long> userIds() {
+            Set<Long> ids = new TreeSet<>(users.keySet());
+            days.keySet().forEach(id -> ids.add(id.getUserId()));
+            return ids;
+        }
+
+        void sent(Long userId, Instant createdAt, BigDecimal amount, BigDecimal fee, int sign) {
+            BigDecimal signedAmount = sign < 0 ? amount.negate() : amount;
+            BigDecimal signedFee = sign < 0 ? fee.negate() : fee;
+            user(userId).add(sign, signedAmount, signedFee, 0, BigDecimal.ZERO);
+            day(new UserDayId(userId, utcDay(createdAt))).add(sign, signedAmount, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+        }
+
+        void received(Long userId, Instant createdAt, BigDecimal amount, int sign) {
+            BigDecimal signedAmount = sign < 0 ? amount.negate() : amount;
+            user(userId).add(0, BigDecimal.ZERO, BigDecimal.ZERO, sign, signedAmount);
+            day(new UserDayId(userId, utcDay(createdAt))).add(0, BigDecimal.ZERO, BigDecimal.ZERO, sign, signedAmount);
+        }
+
+        // What one ledger row contributes: the sender from acceptance, the receiver once mined
+        void expect(LedgerEntryView e) {
+            if (e.senderId() != null) {
+                sent(e.senderId(), e.createdAt(), e.amount(), e.networkFee(), 1);
+            }
+            if (e.receiverId() != null && e.blockIndex() != null) {
+                received(e.receiverId(), e.createdAt(), e.amount(), 1);
+            }
+        }
+    }
+
+    // Simple private class holding one row's increments
+    private static class Delta {
+        long sentCount;
+        BigDecimal sentTotal = BigDecimal.ZERO;
+        BigDecimal feesPaid = BigDecimal.ZERO;
+        long receivedCount;
+        BigDecimal receivedTotal = BigDecimal.ZERO;
+
+        void add(long sentCount, BigDecimal sentTotal, BigDecimal feesPaid, long receivedCount, BigDecimal receivedTotal) {
+            this.sentCount += sentCount;
+            this.sentTotal = this.sentTotal.add(sentTotal);
+            this.feesPaid = this.feesPaid.add(feesPaid);
+            this.receivedCount += receivedCount;
+            this.receivedTotal = this.receivedTotal.add(receivedTotal);
+        }
+
+        void subtract(long sentCount, BigDecimal sentTotal, BigDecimal feesPaid, long receivedCount, BigDecimal receivedTotal) {
+            add(-sentCount, sentTotal.negate(), feesPaid.negate(), -receivedCount, receivedTotal.negate());
+        }
+
+        boolean isZero() {
+            return sentCount == 0 && receivedCount == 0 && sentTotal.signum() == 0
+                    && feesPaid.signum() == 0 && receivedTotal.signum() == 0;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.ArchiveReportView;
+import com.securepayments.model.Block;
+import com.securepayments.repository.ArchivedTransactionRepository;
+import com.securepayments.repository.BlockRepository;
+import com.securepayments.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+/**
+ * Moves the transactions of old blocks from the hot payment_transaction table into
+ * transaction_archive, so the mempool and recent-history queries only scan recent rows.
+ *
+ * A block is archived once it is both {@code depth-blocks} behind the tip and older than
+ * {@code min-age-hours}. The age guard keeps idempotency keys in the hot table's unique
+ * index for at least their TTL, and the depth guard keeps the fee estimator's block window
+ * in the hot table; startup fails if either is configured too small. Blocks move in batches of {@code blocks-per-batch}, each
+ * in its own database transaction: rows are locked, copied with one INSERT ... SELECT and
+ * deleted, and the batch rolls back unless all three counts agree.
+ *
+ * Chain validation, hash lookups and the activity rebuild always read both stores. The
+ * transaction list and the chain view read the hot table by default and the archive only
+ * for an explicit block range.
+ */
+@Service
+public class ArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveService.class);
+
+    private final TransactionRepository transactionRepository;
+    private final ArchivedTransactionRepository archiveRepository;
+    private final BlockRepository blockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer batchTimer;
+    private final Counter archived;
+
+    @Value("${archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archive.depth-blocks:100}")
+    private int depthBlocks;
+
+    @Value("${archive.min-age-hours:24}")
+    private long minAgeHours;
+
+    @Value("${archive.blocks-per-batch:10}")
+    private int blocksPerBatch;
+
+    // What the hot table must keep for other readers; checked against the guards above
+    @Value("${fees.estimator.block-window:20}")
+    private int feeBlockWindow;
+
+    @Value("${payments.idempotency.ttl-seconds:86400}")
+    private long idempotencyTtlSeconds;
+
+    public ArchiveService(TransactionRepository transactionRepository, ArchivedTransactionRepository archiveRepository,
+                          BlockRepository blockRepository, TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.archiveRepository = archiveRepository;
+        this.blockRepository = blockRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchTimer = Timer.builder("archive.batch")
+                .description("Time to copy and delete one batch of archived blocks")
+                .register(meterRegistry);
+        this.archived = Counter.builder("archive.transactions")
+                .description("Transactions moved from the hot table to the archive")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void checkRetention() {
+        if (depthBlocks <= feeBlockWindow) {
+            throw new IllegalStateException("archive.depth-blocks (" + depthBlocks + ") must exceed "
+                    + "fees.estimator.block-window (" + feeBlockWindow + "): the estimator seeds from the hot table");
+        }
+        if (minAgeHours * 3600 < idempotencyTtlSeconds) {
+            throw new IllegalStateException("archive.min-age-hours (" + minAgeHours + ") must cover "
+                    + "payments.idempotency.ttl-seconds (" + idempotencyTtlSeconds + "): keys are only unique in the hot table");
+        }
+    }
+
+    /**
+     * Archives every eligible block. Safe to call at any time; a run that finds nothing
+     * old enough returns an empty report.
+     */
+    public synchronized ArchiveReportView archive() {
+        long start = System.currentTimeMillis();
+        int upTo = lastArchivableBlock(start);
+
+        Integer firstBlock = null;
+        Integer lastBlock = null;
+        long moved = 0;
+        int batches = 0;
+
+        Optional<Integer> next = transactionRepository.findMinMinedBlockIndex();
+        while (next.isPresent() && next.get() <= upTo) {
+            int from = next.get();
+            int to = Math.min(from + blocksPerBatch - 1, upTo);
+            Integer count = batchTimer.record(() -> transactionTemplate.execute(status -> moveBlocks(from, to)));
+            archived.increment(count);
+
+            if (firstBlock == null) {
+                firstBlock = from;
+            }
+            lastBlock = to;
+            moved += count;
+            batches++;
+            next = transactionRepository.findMinMinedBlockIndex();
+        }
+        return new ArchiveReportView(firstBlock, lastBlock, moved, batches, System.currentTimeMillis() - start);
+    }
+
+    @Scheduled(initialDelayString = "${archive.initial-delay-ms:120000}",
+            fixedDelayString = "${archive.interval-ms:3600000}")
+    void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        ArchiveReportView report = archive();
+        if (report.transactionsArchived() > 0) {
+            log.info("Archived transactions: {}", report);
+        }
+    }
+
+    private int lastArchivableBlock(long now) {
+        Block tip = blockRepository.findTopByOrderByBlockIndexDesc();
+        if (tip == null) {
+            return 0;
+        }
+        int byDepth = tip.getBlockIndex() - depthBlocks;
+        int byAge = blockRepository.findMaxBlockIndexBefore(now - minAgeHours * 3_600_000).orElse(0);
+        return Math.min(byDepth, byAge);
+    }
+
+    private int moveBlocks(int fromBlock, int toBlock) {
+        int locked = transactionRepository.lockMinedInBlocks(fromBlock, toBlock).size();
+        int copied = archiveRepository.copyFromHot(fromBlock, toBlock);
+        int deleted = transactionRepository.deleteMinedInBlocks(fromBlock, toBlock);
+        if (copied != locked || deleted != locked) {
+            throw new IllegalStateException("Archiving blocks " + fromBlock + "-" + toBlock + " locked " + locked
+                    + " transactions but copied " + copied + " and deleted " + deleted);
+        }
+        return deleted;
+    }
+}
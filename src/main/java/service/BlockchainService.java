@@ -1,40 +1,177 @@
 package com.securepayments.service;
 
+import com.securepayments.dto.BlockView;
+import com.securepayments.dto.TransactionView;
 import com.securepayments.model.Block;
 import com.securepayments.model.PaymentTransaction;
-import com.securepayments.model.User;
+import com.securepayments.repository.ArchivedTransactionRepository;
 import com.securepayments.repository.BlockRepository;
 import com.securepayments.repository.TransactionRepository;
 import com.securepayments.repository.UserRepository;
 import com.securepayments.util.CryptoUtil;
+import com.securepayments.util.DifficultyUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 @Service
 public class BlockchainService {
 
     private final BlockRepository blockRepository;
     private final TransactionRepository transactionRepository;
+    private final ArchivedTransactionRepository archiveRepository;
     private final UserRepository userRepository;
-    private final int difficulty = 3;
+    private final AccountCache accountCache;
+    private final FeeEstimatorService feeEstimatorService;
+    private final ActivityService activityService;
+
+    // --- Difficulty Retargeting (difficulty is measured in leading zero bits) ---
+    // Blocks mined before retargeting existed stored no difficulty; they used "000" = 12 bits.
+    private static final int LEGACY_DIFFICULTY_BITS = 12;
+
+    @Value("${blockchain.difficulty.initial-bits:12}")
+    private int initialDifficultyBits;
+
+    @Value("${blockchain.difficulty.target-block-interval-ms:30000}")
+    private long targetBlockIntervalMs;
+
+    // Difficulty is recomputed every K blocks
+    @Value("${blockchain.difficulty.retarget-interval:10}")
+    private int retargetInterval;
+
+    @Value("${blockchain.difficulty.max-step-bits:2}")
+    private int maxStepBits;
+
+    @Value("${blockchain.difficulty.min-bits:1}")
+    private int minDifficultyBits;
+
+    @Value("${blockchain.difficulty.max-bits:28}")
+    private int maxDifficultyBits;
+
+    // Blocks up to this index were mined under earlier difficulty settings; validation
+    // does not hold them to the retarget rule as configured now
+    @Value("${blockchain.difficulty.rules-since-block:0}")
+    private int rulesSinceBlock;
+
+    private final AtomicInteger currentDifficultyBits = new AtomicInteger();
+
+    // --- Mining Metrics ---
+    private final Counter nonceAttempts;
+    private final DistributionSummary hashRate;
+    private final Timer miningDuration;
+    private final DistributionSummary blockSize;
 
     // FIX: Corrected Constructor
     public BlockchainService(BlockRepository blockRepository,
                              TransactionRepository transactionRepository,
-                             UserRepository userRepository) {
+                             ArchivedTransactionRepository archiveRepository,
+                             UserRepository userRepository,
+                             AccountCache accountCache,
+                             FeeEstimatorService feeEstimatorService,
+                             ActivityService activityService,
+                             MeterRegistry meterRegistry) {
         this.blockRepository = blockRepository;
         this.transactionRepository = transactionRepository;
+        this.archiveRepository = archiveRepository;
         this.userRepository = userRepository;
+        this.accountCache = accountCache;
+        this.feeEstimatorService = feeEstimatorService;
+        this.activityService = activityService;
+
+        this.nonceAttempts = Counter.builder("blockchain.mining.nonce.attempts")
+                .description("Total proof-of-work hashes computed while mining")
+                .register(meterRegistry);
+        this.hashRate = DistributionSummary.builder("blockchain.mining.hash.rate")
+                .description("Proof-of-work hashes per second, recorded once per mined block")
+                .baseUnit("hashes/s")
+                .register(meterRegistry);
+        this.miningDuration = Timer.builder("blockchain.mining.duration")
+                .description("Wall time of minePendingTransactions, including settlement")
+                .register(meterRegistry);
+        this.blockSize = DistributionSummary.builder("blockchain.block.size")
+                .description("Number of transactions per mined block")
+                .baseUnit("transactions")
+                .register(meterRegistry);
+
+        // Sampled on scrape: a single COUNT(*) rather than loading the pending set
+        Gauge.builder("blockchain.mempool.pending", transactionRepository, TransactionRepository::countByBlockIsNull)
+                .description("Transactions waiting to be mined")
+                .register(meterRegistry);
+        Gauge.builder("blockchain.difficulty.bits", currentDifficultyBits, AtomicInteger::get)
+                .description("Difficulty (leading zero bits) of the most recently mined block")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The recent part of the chain: every block after the last archived one, so the
+     * default view only reads the hot table.
+     */
+    @Transactional(readOnly = true)
+    public List<BlockView> getChain() {
+        int firstRecent = archiveRepository.findMaxBlockIndex().map(last -> last + 1).orElse(0);
+        return getChain(firstRecent, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Blocks [fromBlock, toBlock] as read-only projections: one query for the headers and
+     * one per store (hot table, and the archive only if the range reaches into it) for the
+     * mined transactions, stitched together here instead of walking entity graphs.
+     */
+    @Transactional(readOnly = true)
+    public List<BlockView> getChain(int fromBlock, int toBlock) {
+        Map<Integer, Map<Long, TransactionView>> byBlock = new HashMap<>();
+        // Hot first: a batch archived in between shows up twice rather than not at all
+        transactionRepository.findMinedViewsInBlocks(fromBlock, toBlock).forEach(tx -> addMined(byBlock, tx));
+        Optional<Integer> lastArchived = archiveRepository.findMaxBlockIndex();
+        if (lastArchived.isPresent() && fromBlock <= lastArchived.get()) {
+            archiveRepository.findViewsInBlocks(fromBlock, Math.min(toBlock, lastArchived.get()))
+                    .forEach(tx -> addMined(byBlock, tx));
+        }
+        return blockRepository.findHeaderViewsInBlocks(fromBlock, toBlock).stream()
+                .map(b -> b.withTransactions(new ArrayList<>(byBlock.getOrDefault(b.blockIndex(), Map.of()).values())))
+                .toList();
+    }
+
+    /**
+     * Mined transactions of both stores in full, per block, for chain validation.
+     * The hot table is read first: a batch archived in between then shows up twice rather
+     * than not at all, and the duplicate is dropped by id.
+     */
+    private Map<Integer, List<TransactionView>> minedByBlock() {
+        Map<Integer, Map<Long, TransactionView>> byBlock = new HashMap<>();
+        transactionRepository.findMinedViews().forEach(tx -> addMined(byBlock, tx));
+        archiveRepository.findAllViews().forEach(tx -> addMined(byBlock, tx));
+        Map<Integer, List<TransactionView>> result = new HashMap<>();
+        byBlock.forEach((index, txs) -> result.put(index, new ArrayList<>(txs.values())));
+        return result;
     }
 
-    public List<Block> getChain() {
-        return blockRepository.findAllWithTransactions();
+    // Per block in id order (the order the block hash covers); a duplicate id keeps the first copy
+    private static void addMined(Map<Integer, Map<Long, TransactionView>> byBlock, TransactionView tx) {
+        byBlock.computeIfAbsent(tx.blockIndex(), k -> new TreeMap<>()).putIfAbsent(tx.id(), tx);
     }
 
     @Transactional
     public Block minePendingTransactions() {
+        long miningStart = System.nanoTime();
         List<PaymentTransaction> pending = transactionRepository.findByBlockIsNullEagerly();
 
         if (pending.isEmpty()) {
@@ -47,55 +184,171 @@ public class BlockchainService {
 
         Block block = new Block(nextIndex, previousHash);
 
-        // CRITICAL FIX: Set a temporary, non-null hash value before the first database save
-        block.setHash("TEMP_HASH_PLACEHOLDER");
-
-        Block savedBlock = blockRepository.save(block);
-
-        block = savedBlock;
-
+        // Proof of work first, before this transaction writes anything: at up to max-bits it can
+        // take as long as the target interval, and no user row may stay locked for that long.
+        // The hash input only needs the header and the transaction hashes, none of which depend on the credits.
+        // The retarget lookups run before any entity is dirtied, so nothing is flushed (and locked) early.
+        int difficultyBits = nextDifficulty(last, blockRepository::findByBlockIndex);
+        block.setDifficulty(difficultyBits);
         for (PaymentTransaction tx : pending) {
-            tx.setBlock(block);
-            tx.setStatus("MINED");
             tx.setTransactionHash(generateTransactionHash(tx));
-
-            User receiver = userRepository.findLockedById(tx.getReceiver().getId())
-                    .orElseThrow(() -> new IllegalStateException("Receiver not found during mining!"));
-            receiver.setBalance(receiver.getBalance().add(tx.getAmount()));
-            userRepository.save(receiver);
-
-            User sender = userRepository.findLockedById(tx.getSender().getId())
-                    .orElseThrow(() -> new IllegalStateException("Sender not found during mining!"));
-            userRepository.save(sender);
         }
 
-        block.setTransactions(pending);
-
-        // Proof of Work logic
-        String prefix = "0".repeat(difficulty);
+        // Only the nonce changes between attempts, so build the rest of the hash input once
+        String header = block.getBlockIndex() + block.getPreviousHash() + block.getTimestamp();
+        String body = digestInput(pending, PaymentTransaction::getTransactionHash, PaymentTransaction::getAmount);
         int nonce = 0;
         String hash;
+        long powStart = System.nanoTime();
         do {
             block.setNonce(nonce++);
-            String dataToHash = block.getBlockIndex()
-                    + block.getPreviousHash()
-                    + block.getTimestamp()
-                    + block.getNonce()
-                    + block.getTransactions().stream()
-                    .map(tx -> tx.getTransactionHash() + ":" + tx.getAmount())
-                    .reduce("", String::concat);
-
-            hash = CryptoUtil.applySha256(dataToHash);
-        } while (!hash.startsWith(prefix));
+            hash = CryptoUtil.applySha256(header + block.getNonce() + body);
+        } while (!DifficultyUtil.meetsDifficulty(hash, difficultyBits));
+        long powNanos = System.nanoTime() - powStart;
 
         block.setHash(hash);
-        blockRepository.save(block); // Final save with correct hash
+        block = blockRepository.save(block);
 
+        // Credits are summed per receiver and applied as atomic "balance = balance + x" updates.
+        // FIX: The previous findLockedById + save returned the User instances already loaded
+        // (stale) by the pending query, so concurrent debits made in between were overwritten.
+        // Ascending id order keeps lock acquisition consistent between concurrent miners.
+        Map<Long, BigDecimal> credits = new TreeMap<>();
+        for (PaymentTransaction tx : pending) {
+            tx.setBlock(block);
+            tx.setStatus("MINED");
+            credits.merge(tx.getReceiver().getId(), tx.getAmount(), BigDecimal::add);
+        }
+
+        credits.forEach((receiverId, amount) -> {
+            if (userRepository.creditBalance(receiverId, amount) == 0) {
+                throw new IllegalStateException("Receiver not found during mining!");
+            }
+        });
+        // Receivers are locked by their credit above, as ActivityService expects
+        activityService.recordSettlement(pending);
+        accountCache.invalidateAfterCommit(credits.keySet());
+        feeEstimatorService.blockMinedAfterCommit(pending.stream().map(PaymentTransaction::getNetworkFee).toList());
+
+        block.setTransactions(pending);
         transactionRepository.saveAll(pending);
 
+        currentDifficultyBits.set(difficultyBits);
+        recordMiningMetrics(nonce, powNanos, pending.size(), System.nanoTime() - miningStart);
+
         return block;
     }
 
+    /**
+     * Re-checks the whole chain: index continuity, hash links, that each block's hash
+     * satisfies the difficulty stored in it and matches its contents, and that
+     * difficulty changes follow the retarget rule. Legacy blocks (no stored difficulty)
+     * get the link and 12-bit proof-of-work checks only; see the notes below.
+     * @return A list of human-readable violations; empty if the chain is valid.
+     */
+    @Transactional(readOnly = true)
+    public List<String> validateChain() {
+        // Headers as entities (the retarget rule works on Blocks); transactions may be archived
+        List<Block> chain = blockRepository.findAll(Sort.by("blockIndex"));
+        Map<Integer, List<TransactionView>> minedByBlock = minedByBlock();
+        Map<Integer, Block> byIndex = new HashMap<>();
+        chain.forEach(b -> byIndex.put(b.getBlockIndex(), b));
+
+        List<String> errors = new ArrayList<>();
+        Block previous = null;
+        for (Block block : chain) {
+            int index = block.getBlockIndex();
+            int expectedIndex = (previous != null) ? previous.getBlockIndex() + 1 : 1;
+            String expectedPreviousHash = (previous != null) ? previous.getHash() : "0";
+
+            if (index != expectedIndex) {
+                errors.add("Block " + index + ": expected index " + expectedIndex);
+            }
+            if (!expectedPreviousHash.equals(block.getPreviousHash())) {
+                errors.add("Block " + index + ": previousHash does not match the preceding block's hash");
+            }
+
+            // Proof of work is checked against the difficulty the block itself records
+            int bits = effectiveDifficulty(block);
+            if (!DifficultyUtil.meetsDifficulty(block.getHash(), bits)) {
+                errors.add("Block " + index + ": hash does not meet " + bits + " bits of difficulty");
+            }
+
+            // The retarget rule needs a stored difficulty on both sides, so it starts after the
+            // first retargeted block, and it is only enforced for blocks mined under the
+            // current settings (blockchain.difficulty.rules-since-block)
+            if (block.getDifficulty() > 0 && previous != null && previous.getDifficulty() > 0
+                    && index > rulesSinceBlock) {
+                int expectedBits = nextDifficulty(previous, byIndex::get);
+                if (bits != expectedBits) {
+                    errors.add("Block " + index + ": difficulty " + bits + " bits, retarget rule expects " + expectedBits);
+                }
+            }
+
+            // Legacy blocks were mined over the pending set in no defined order, so their
+            // contents cannot be re-hashed reliably; they are covered by the hash links only
+            if (block.getDifficulty() > 0) {
+                List<TransactionView> txs = minedByBlock.getOrDefault(index, List.of());
+                String recomputed = CryptoUtil.applySha256(block.getBlockIndex() + block.getPreviousHash()
+                        + block.getTimestamp() + block.getNonce()
+                        + digestInput(txs, TransactionView::transactionHash, TransactionView::amount));
+                if (!recomputed.equals(block.getHash())) {
+                    errors.add("Block " + index + ": stored hash does not match block contents");
+                }
+            }
+            previous = block;
+        }
+        return errors;
+    }
+
+    /**
+     * Difficulty for the block following {@code previous}. Unchanged inside a window;
+     * every {@code retargetInterval} blocks it is recomputed from the timestamps of the
+     * window that just closed, so the average block interval tracks the configured target.
+     */
+    private int nextDifficulty(Block previous, IntFunction<Block> blockAtIndex) {
+        if (previous == null) {
+            return initialDifficultyBits;
+        }
+        int currentBits = effectiveDifficulty(previous);
+        int lastIndex = previous.getBlockIndex();
+        if (retargetInterval <= 0 || lastIndex % retargetInterval != 0) {
+            return currentBits;
+        }
+
+        Block windowStart = blockAtIndex.apply(Math.max(1, lastIndex - retargetInterval));
+        if (windowStart == null || windowStart.getBlockIndex() >= lastIndex) {
+            return currentBits;
+        }
+        long intervals = lastIndex - windowStart.getBlockIndex();
+        long actualTimespan = previous.getTimestamp() - windowStart.getTimestamp();
+        return DifficultyUtil.retarget(currentBits, actualTimespan, targetBlockIntervalMs * intervals,
+                maxStepBits, minDifficultyBits, maxDifficultyBits);
+    }
+
+    private static int effectiveDifficulty(Block block) {
+        return block.getDifficulty() > 0 ? block.getDifficulty() : LEGACY_DIFFICULTY_BITS;
+    }
+
+    // Same input whether the transactions are entities being mined or views read back for validation
+    private static <T> String digestInput(List<T> transactions, Function<T, String> hash,
+                                          Function<T, BigDecimal> amount) {
+        StringBuilder sb = new StringBuilder();
+        for (T tx : transactions) {
+            sb.append(hash.apply(tx)).append(':').append(amount.apply(tx));
+        }
+        return sb.toString();
+    }
+
+    private void recordMiningMetrics(long attempts, long powNanos, int transactionCount, long totalNanos) {
+        nonceAttempts.increment(attempts);
+        if (powNanos > 0) {
+            hashRate.record(attempts * 1_000_000_000.0 / powNanos);
+        }
+        blockSize.record(transactionCount);
+        miningDuration.record(totalNanos, TimeUnit.NANOSECONDS);
+    }
+
     private String generateTransactionHash(PaymentTransaction tx) {
         String data = tx.getSender().getId() + ":" + tx.getReceiver().getId()
                 + ":" + tx.getAmount() + ":" + tx.getCreatedAt().toEpochMilli();
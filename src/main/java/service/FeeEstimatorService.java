@@ -0,0 +1,223 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.FeeEstimateView;
+import com.securepayments.model.Block;
+import com.securepayments.repository.BlockRepository;
+import com.securepayments.repository.TransactionRepository;
+import com.securepayments.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rolling fee percentiles over the mempool and the last N mined blocks.
+ *
+ * Both sets are sorted multisets (fee -> count) kept up to date incrementally:
+ * a committed payment adds its fee to the mempool set, a mined block moves its fees
+ * from the mempool set into the block window (dropping the oldest block once the window
+ * is full), and a deleted pending payment removes its fee. Only startup reads the tables.
+ *
+ * Answers are derived from the sets on first request after a change and then cached,
+ * so GET /api/fees/estimate costs nothing while fees are not moving.
+ */
+@Service
+public class FeeEstimatorService implements SmartLifecycle {
+
+    private final TransactionRepository transactionRepository;
+    private final BlockRepository blockRepository;
+
+    @Value("${fees.estimator.block-window:20}")
+    private int blockWindow;
+
+    // Suggested for every tier until there is anything to sample
+    @Value("${fees.estimator.default-fee:0.01}")
+    private BigDecimal defaultFee;
+
+    // --- Estimator State (guarded by this) ---
+    private final FeeMultiset pending = new FeeMultiset();
+    private final FeeMultiset recent = new FeeMultiset();
+    // Fees of each block in the window, oldest first, so they can be removed again
+    private final Deque<List<BigDecimal>> windowBlocks = new ArrayDeque<>();
+    private FeeEstimateView cached;
+    private boolean seeded;
+    private volatile boolean running;
+
+    public FeeEstimatorService(TransactionRepository transactionRepository, BlockRepository blockRepository) {
+        this.transactionRepository = transactionRepository;
+        this.blockRepository = blockRepository;
+    }
+
+    // =========================================================================
+    // LIFECYCLE: seeded on start rather than at bean creation, so building the context
+    // (e.g. the AppCDS training run, which exits on refresh) needs no database
+    // =========================================================================
+
+    @Override
+    public void start() {
+        synchronized (this) {
+            if (!seeded) { // a stop/start cycle must not count the database twice
+                seed();
+                seeded = true;
+            }
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before the web server starts, so no payment can commit ahead of the seed
+    @Override
+    public int getPhase() {
+        return StartupWarmup.PHASE;
+    }
+
+    /**
+     * Seeds both sets once; from here on they are maintained by the hooks below.
+     */
+    synchronized void seed() {
+        transactionRepository.findPendingFees().forEach(pending::add);
+
+        Block tip = blockRepository.findTopByOrderByBlockIndexDesc();
+        if (tip != null) {
+            for (int index = Math.max(0, tip.getBlockIndex() - blockWindow + 1); index <= tip.getBlockIndex(); index++) {
+                addBlock(transactionRepository.findFeesByBlockIndex(index));
+            }
+        }
+        cached = null;
+    }
+
+    public synchronized FeeEstimateView estimate() {
+        if (cached == null) {
+            cached = compute();
+        }
+        return cached;
+    }
+
+    // =========================================================================
+    // INCREMENTAL UPDATES (applied once the caller's transaction commits)
+    // =========================================================================
+
+    public void pendingAddedAfterCommit(Collection<BigDecimal> fees) {
+        List<BigDecimal> added = List.copyOf(fees);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                added.forEach(pending::add);
+                cached = null;
+            }
+        });
+    }
+
+    public void pendingRemovedAfterCommit(Collection<BigDecimal> fees) {
+        List<BigDecimal> removed = List.copyOf(fees);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                removed.forEach(pending::remove);
+                cached = null;
+            }
+        });
+    }
+
+    /**
+     * Moves the fees of a newly mined block from the mempool into the block window.
+     */
+    public void blockMinedAfterCommit(Collection<BigDecimal> fees) {
+        List<BigDecimal> mined = List.copyOf(fees);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                mined.forEach(pending::remove);
+                addBlock(mined);
+                cached = null;
+            }
+        });
+    }
+
+    private void addBlock(List<BigDecimal> fees) {
+        windowBlocks.addLast(fees);
+        fees.forEach(recent::add);
+        while (windowBlocks.size() > blockWindow) {
+            windowBlocks.removeFirst().forEach(recent::remove);
+        }
+    }
+
+    private FeeEstimateView compute() {
+        // Prefer what actually got mined; fall back to the mempool on a fresh chain
+        FeeMultiset basis = recent.size() > 0 ? recent : pending;
+        BigDecimal slow = defaultFee;
+        BigDecimal normal = defaultFee;
+        BigDecimal fast = defaultFee;
+        if (basis.size() > 0) {
+            slow = basis.percentile(25);
+            normal = basis.percentile(50).max(slow);
+            fast = basis.percentile(90).max(normal);
+            if (pending.size() > 0) {
+                // To get ahead of the current backlog, outbid most of it
+                fast = fast.max(pending.percentile(75));
+            }
+        }
+        return new FeeEstimateView(fast, normal, slow, pending.size(), windowBlocks.size(), recent.size());
+    }
+
+    // Sorted multiset of fees; percentile walks the distinct values, which stay few in practice
+    private static class FeeMultiset {
+        private final TreeMap<BigDecimal, Integer> counts = new TreeMap<>();
+        private int size;
+
+        void add(BigDecimal fee) {
+            if (fee == null) {
+                return;
+            }
+            counts.merge(fee, 1, Integer::sum);
+            size++;
+        }
+
+        void remove(BigDecimal fee) {
+            if (fee == null) {
+                return;
+            }
+            // Removing a fee that was never seen (e.g. lost during startup) is ignored
+            Integer count = counts.get(fee);
+            if (count == null) {
+                return;
+            }
+            if (count == 1) {
+                counts.remove(fee);
+            } else {
+                counts.put(fee, count - 1);
+            }
+            size--;
+        }
+
+        int size() {
+            return size;
+        }
+
+        // Nearest-rank percentile
+        BigDecimal percentile(int p) {
+            int rank = Math.max(1, (int) Math.ceil(p / 100.0 * size));
+            int seen = 0;
+            for (Map.Entry<BigDecimal, Integer> entry : counts.entrySet()) {
+                seen += entry.getValue();
+                if (seen >= rank) {
+                    return entry.getKey();
+                }
+            }
+            return counts.lastKey();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.securepayments.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * An Idempotency-Key was sent again with a different payment (sender, receiver, amount
+ * or fee). Replaying the original would silently ignore the new request, so it is refused.
+ */
+@ResponseStatus(value = HttpStatus.UNPROCESSABLE_ENTITY, reason = "Idempotency-Key was already used for a different payment")
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency-Key " + key + " was already used for a different payment");
+    }
+}
@@ -0,0 +1,187 @@
+package com.securepayments.service;
+
+import com.securepayments.model.PaymentTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * De-duplicates payment submissions that carry an Idempotency-Key.
+ *
+ * A bounded, time-expiring in-memory map holds one future per key, so a retry (or a
+ * concurrent duplicate) waits for / returns the first execution instead of running
+ * another locked debit. Keys that have fallen out of memory are still caught by the
+ * lookup and the unique idempotency_key column on PaymentTransaction.
+ *
+ * Each key is bound to the payment it was first used for (sender, receiver, amount, fee).
+ * Reusing it for a different payment is refused instead of replaying the original.
+ */
+@Service
+public class IdempotencyService {
+
+    private final TransactionService transactionService;
+
+    @Value("${payments.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${payments.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    // --- In-Memory Dedup Cache ---
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    // Insertion order, used for expiry and size-bound eviction (oldest first)
+    private final Queue<CacheEntry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private final Counter replays;
+
+    public IdempotencyService(TransactionService transactionService, MeterRegistry meterRegistry) {
+        this.transactionService = transactionService;
+        this.replays = Counter.builder("payments.idempotency.replayed")
+                .description("Payment submissions answered from an earlier execution of the same key")
+                .register(meterRegistry);
+        Gauge.builder("payments.idempotency.cache.size", entries, Map::size)
+                .description("Idempotency keys currently held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the payment at most once per key and returns its result to every caller.
+     * A failed payment is not remembered, so the client may retry it with the same key.
+     * @throws IdempotencyKeyReusedException if the key was first used for a different payment.
+     */
+    public PaymentTransaction execute(String key, PaymentRequest request, Supplier<PaymentTransaction> payment) {
+        evictExpiredAndOverflow();
+        Fingerprint fingerprint = Fingerprint.of(request);
+
+        CacheEntry existing = entries.get(key);
+        if (existing != null && !existing.isExpired()) {
+            return replay(existing, fingerprint);
+        }
+
+        CacheEntry mine = new CacheEntry(key, fingerprint, System.currentTimeMillis() + ttlSeconds * 1000);
+        CacheEntry winner = (existing == null)
+                ? entries.putIfAbsent(key, mine)
+                : (entries.replace(key, existing, mine) ? null : entries.get(key));
+        if (winner != null) {
+            // Another request with this key got in first: share its outcome
+            return replay(winner, fingerprint);
+        }
+        insertionOrder.add(mine);
+
+        try {
+            PaymentTransaction result = findRecorded(key, fingerprint)
+                    .orElseGet(() -> executeOnce(key, fingerprint, payment));
+            mine.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            entries.remove(key, mine);
+            insertionOrder.remove(mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private PaymentTransaction replay(CacheEntry entry, Fingerprint fingerprint) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException(entry.key);
+        }
+        replays.increment();
+        return await(entry.result);
+    }
+
+    private PaymentTransaction executeOnce(String key, Fingerprint fingerprint, Supplier<PaymentTransaction> payment) {
+        try {
+            return payment.get();
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race on the unique key (e.g. another node, or an evicted entry):
+            // the debit was rolled back, so answer with the row that won.
+            return findRecorded(key, fingerprint).orElseThrow(() -> e);
+        }
+    }
+
+    // The recorded row is the fingerprint of keys that are no longer in memory
+    private Optional<PaymentTransaction> findRecorded(String key, Fingerprint fingerprint) {
+        Optional<PaymentTransaction> recorded = transactionService.findByIdempotencyKey(key);
+        if (recorded.isPresent()) {
+            if (!Fingerprint.of(recorded.get()).equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException(key);
+            }
+            replays.increment();
+        }
+        return recorded;
+    }
+
+    private static PaymentTransaction await(CompletableFuture<PaymentTransaction> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void evictExpiredAndOverflow() {
+        CacheEntry oldest;
+        while ((oldest = insertionOrder.peek()) != null
+                && (oldest.isExpired() || entries.size() > maxEntries)) {
+            if (insertionOrder.remove(oldest)) {
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    // Simple private class to hold one key's (possibly in-flight) outcome
+    private static class CacheEntry {
+        final String key;
+        final Fingerprint fingerprint;
+        final long expiresAtMillis;
+        final CompletableFuture<PaymentTransaction> result = new CompletableFuture<>();
+
+        CacheEntry(String key, Fingerprint fingerprint, long expiresAtMillis) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAtMillis;
+        }
+    }
+
+    /**
+     * What a key is bound to. Amounts are normalised to the scale of their columns
+     * (amount 2, networkFee 8), so a request compares equal to the row it produced.
+     */
+    private record Fingerprint(Long senderId, Long receiverId, BigDecimal amount, BigDecimal networkFee) {
+
+        static Fingerprint of(PaymentRequest r) {
+            return new Fingerprint(r.senderId(), r.receiverId(), scaled(r.amount(), 2), scaled(r.networkFee(), 8));
+        }
+
+        static Fingerprint of(PaymentTransaction tx) {
+            return new Fingerprint(tx.getSender() != null ? tx.getSender().getId() : null,
+                    tx.getReceiver() != null ? tx.getReceiver().getId() : null,
+                    scaled(tx.getAmount(), 2), scaled(tx.getNetworkFee(), 8));
+        }
+
+        private static BigDecimal scaled(BigDecimal value, int scale) {
+            return value != null ? value.setScale(scale, RoundingMode.HALF_UP) : null;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.securepayments.service;
+
+import com.securepayments.model.PaymentTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Entry point for payment submissions.
+ *
+ * In the default "direct" mode every payment is its own database transaction, exactly
+ * as TransactionService.createTransaction does it. In "queued" mode validated payments
+ * go onto a bounded in-memory queue, and a single writer thread group-commits them in
+ * batches (closed by size or by time window), completing each caller's future only
+ * after its batch has committed.
+ *
+ * Crash safety: nothing is acknowledged before it is committed, so the database stays
+ * the only source of truth. Payments still in the queue when the process dies were
+ * never confirmed to their callers; those retry (with the same Idempotency-Key), and
+ * the unique key column prevents a payment from being applied twice.
+ */
+@Service
+public class PaymentIntakeService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentIntakeService.class);
+
+    private final TransactionService transactionService;
+    private final MeterRegistry meterRegistry;
+
+    // "direct" (one commit per payment) or "queued" (write-behind with group commit)
+    @Value("${payments.intake.mode:direct}")
+    private String mode;
+
+    @Value("${payments.intake.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${payments.intake.batch-size:200}")
+    private int batchSize;
+
+    @Value("${payments.intake.batch-window-ms:10}")
+    private long batchWindowMs;
+
+    // How long a submitter waits for queue space before being turned away
+    @Value("${payments.intake.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    // How long a submitter waits for its payment to commit before getting a 503
+    @Value("${payments.intake.result-timeout-ms:30000}")
+    private long resultTimeoutMs;
+
+    private BlockingQueue<QueuedPayment> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Counter queueFullRejections;
+    private DistributionSummary batchSizes;
+    private Timer batchCommit;
+
+    public PaymentIntakeService(TransactionService transactionService, MeterRegistry meterRegistry) {
+        this.transactionService = transactionService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isQueued()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        queueFullRejections = Counter.builder("payments.intake.rejected")
+                .description("Payments turned away because the intake queue was full")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("payments.intake.batch.size")
+                .description("Payments per group commit")
+                .register(meterRegistry);
+        batchCommit = Timer.builder("payments.intake.batch.commit")
+                .description("Time to apply and commit one batch")
+                .register(meterRegistry);
+        Gauge.builder("payments.intake.queue.depth", queue, BlockingQueue::size)
+                .description("Payments waiting for the group-commit writer")
+                .register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::writeLoop, "payment-intake-writer");
+        writer.start();
+    }
+
+    /**
+     * Stops accepting payments and lets the writer commit whatever is already queued.
+     * Anything it has not reached within 30 seconds is failed, so no caller waits forever.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (writer.isAlive()) {
+            writer.interrupt(); // the writer fails its own batch and the queue on the way out
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        failQueued(new ArrayList<>(), "Payment intake stopped");
+    }
+
+    public boolean isQueued() {
+        return "queued".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Submits a payment and blocks until it is committed (or rejected).
+     * @throws PaymentIntakeUnavailableException if no outcome arrives within the result timeout.
+     */
+    public PaymentTransaction process(PaymentRequest request) {
+        try {
+            return submit(request).get(resultTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new PaymentIntakeUnavailableException("Payment not committed within " + resultTimeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentIntakeUnavailableException("Interrupted while waiting for the payment to commit");
+        }
+    }
+
+    /**
+     * Submits a payment. The future completes once the payment's transaction has committed.
+     * @throws PaymentQueueFullException if the queue stays full for longer than the offer timeout.
+     */
+    public CompletableFuture<PaymentTransaction> submit(PaymentRequest request) {
+        // Same rules in both modes; in queued mode bad payments also never take a queue slot
+        validate(request);
+        if (!isQueued()) {
+            return CompletableFuture.completedFuture(transactionService.createTransaction(
+                    request.senderId(), request.receiverId(), request.amount(),
+                    request.networkFee(), request.idempotencyKey()));
+        }
+
+        QueuedPayment queued = new QueuedPayment(request);
+        try {
+            if (!running || !queue.offer(queued, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                queueFullRejections.increment();
+                throw new PaymentQueueFullException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentQueueFullException();
+        }
+        // Stopped while we were offering: the writer (or stop's final drain) may already be
+        // gone, so take the payment back if nobody has picked it up yet
+        if (!running && queue.remove(queued)) {
+            throw new PaymentIntakeUnavailableException("Payment intake stopped");
+        }
+        return queued.result;
+    }
+
+    // Cheap checks that need no locks
+    private static void validate(PaymentRequest request) {
+        if (request.senderId() == null || request.receiverId() == null) {
+            throw new IllegalArgumentException("Sender and receiver are required");
+        }
+        if (request.senderId().equals(request.receiverId())) {
+            throw new IllegalArgumentException("Sender and receiver must differ");
+        }
+        if (request.amount() == null || request.amount().signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (request.networkFee() == null || request.networkFee().compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalArgumentException("Network fee cannot be negative");
+        }
+    }
+
+    // =========================================================================
+    // GROUP-COMMIT WRITER
+    // =========================================================================
+
+    private void writeLoop() {
+        List<QueuedPayment> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedPayment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep filling until the batch is full or its time window closes
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    QueuedPayment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                commit(batch);
+            } catch (InterruptedException e) {
+                // Only stop() interrupts: answer everyone still waiting and exit
+                running = false;
+                failQueued(batch, "Payment intake stopped");
+                return;
+            } catch (RuntimeException e) {
+                // Never let one bad batch kill the writer
+                log.error("Payment intake writer error, failing a batch of {}", batch.size(), e);
+                batch.forEach(p -> p.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Fails the given payments and everything left in the queue
+    private void failQueued(List<QueuedPayment> pending, String reason) {
+        queue.drainTo(pending);
+        PaymentIntakeUnavailableException failure = new PaymentIntakeUnavailableException(reason);
+        pending.forEach(p -> p.result.completeExceptionally(failure));
+        pending.clear();
+    }
+
+    private void commit(List<QueuedPayment> batch) {
+        batchSizes.record(batch.size());
+        List<PaymentRequest> requests = batch.stream().map(p -> p.request).toList();
+
+        List<TransactionService.PaymentOutcome> outcomes;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            outcomes = transactionService.createTransactionBatch(requests);
+        } catch (RuntimeException e) {
+            // The whole batch rolled back (e.g. a duplicate Idempotency-Key or a lock conflict).
+            // Apply its payments one by one so only the offending payment fails.
+            log.warn("Group commit of {} payments failed, retrying individually", batch.size(), e);
+            batch.forEach(this::commitIndividually);
+            return;
+        } finally {
+            sample.stop(batchCommit);
+        }
+
+        // Committed: now it is safe to answer the callers
+        for (int i = 0; i < batch.size(); i++) {
+            TransactionService.PaymentOutcome outcome = outcomes.get(i);
+            if (outcome.rejection() != null) {
+                batch.get(i).result.completeExceptionally(outcome.rejection());
+            } else {
+                batch.get(i).result.complete(outcome.transaction());
+            }
+        }
+    }
+
+    private void commitIndividually(QueuedPayment payment) {
+        PaymentRequest r = payment.request;
+        try {
+            payment.result.complete(transactionService.createTransaction(
+                    r.senderId(), r.receiverId(), r.amount(), r.networkFee(), r.idempotencyKey()));
+        } catch (RuntimeException e) {
+            payment.result.completeExceptionally(e);
+        }
+    }
+
+    // Simple private class pairing a request with its caller's future
+    private static class QueuedPayment {
+        final PaymentRequest request;
+        final CompletableFuture<PaymentTransaction> result = new CompletableFuture<>();
+
+        QueuedPayment(PaymentRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.securepayments.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The queued intake could not confirm a payment: the service is shutting down, or the
+ * commit did not finish within the result timeout. In the second case the payment may
+ * still commit, so clients should retry with the same Idempotency-Key.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Payment not confirmed, retry with the same Idempotency-Key")
+public class PaymentIntakeUnavailableException extends RuntimeException {
+
+    public PaymentIntakeUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.securepayments.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Backpressure signal from the queued intake mode: the queue stayed full for the
+ * whole offer timeout. Clients should retry later with the same Idempotency-Key.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Payment intake queue is full, retry later")
+public class PaymentQueueFullException extends RuntimeException {
+
+    public PaymentQueueFullException() {
+        super("Payment intake queue is full");
+    }
+}
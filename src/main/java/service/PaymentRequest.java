@@ -0,0 +1,11 @@
+package com.securepayments.service;
+
+import java.math.BigDecimal;
+
+/**
+ * A validated payment submission waiting to be applied (see PaymentIntakeService).
+ * The idempotencyKey is null when the client did not send one.
+ */
+public record PaymentRequest(Long senderId, Long receiverId, BigDecimal amount,
+                             BigDecimal networkFee, String idempotencyKey) {
+}
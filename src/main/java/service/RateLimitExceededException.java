@@ -0,0 +1,37 @@
+package com.securepayments.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answered as 429 Too Many Requests with a Retry-After header (whole seconds, rounded up).
+ */
+public class RateLimitExceededException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String scope, long retryAfterNanos) {
+        super(HttpStatus.TOO_MANY_REQUESTS,
+                "Rate limit exceeded for " + scope + ", retry after " + toSeconds(retryAfterNanos) + "s");
+        this.retryAfterSeconds = toSeconds(retryAfterNanos);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    private static long toSeconds(long nanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return Math.max(1, (nanos + second - 1) / second);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return headers;
+    }
+}
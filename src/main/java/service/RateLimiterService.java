@@ -0,0 +1,159 @@
+package com.securepayments.service;
+
+import com.securepayments.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limits in front of the payment and proxy endpoints.
+ *
+ * Client buckets are kept per scope (endpoint) and per caller (remote address, plus the
+ * sender id for payments), created on first use in a ConcurrentHashMap; each bucket is a
+ * single CAS-updated value, so the request path takes no lock. A scheduled sweep, off the
+ * request path, drops only buckets that have refilled completely, since forgetting those
+ * changes nothing. While the table is at max-keys, new callers of a scope share one
+ * overflow bucket instead of displacing anyone's limit.
+ * The upstream buckets are global and sized to the provider quotas, so no mix of
+ * clients can spend more of the Alpha Vantage or Gemini allowance than we have.
+ *
+ * Exceeding any bucket throws RateLimitExceededException (429 with Retry-After).
+ */
+@Service
+public class RateLimiterService {
+
+    // --- Scopes ---
+    public static final String PAYMENTS = "payments";
+    public static final String STOCKS = "stocks";
+    public static final String AI = "ai";
+    public static final String ALPHA_VANTAGE = "alpha-vantage";
+    public static final String GEMINI = "gemini";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ratelimit.enabled:true}")
+    private boolean enabled;
+
+    // Client buckets tracked at once; beyond this, new callers share the scope's overflow bucket
+    @Value("${ratelimit.max-keys:100000}")
+    private int maxKeys;
+
+    @Value("${ratelimit.payments.capacity:10}")
+    private int paymentsCapacity;
+    @Value("${ratelimit.payments.per-minute:300}")
+    private double paymentsPerMinute;
+
+    @Value("${ratelimit.stocks.capacity:20}")
+    private int stocksCapacity;
+    @Value("${ratelimit.stocks.per-minute:120}")
+    private double stocksPerMinute;
+
+    @Value("${ratelimit.ai.capacity:3}")
+    private int aiCapacity;
+    @Value("${ratelimit.ai.per-minute:6}")
+    private double aiPerMinute;
+
+    @Value("${ratelimit.upstream.alpha-vantage.capacity:5}")
+    private int alphaVantageCapacity;
+    @Value("${ratelimit.upstream.alpha-vantage.per-minute:5}")
+    private double alphaVantagePerMinute;
+
+    @Value("${ratelimit.upstream.gemini.capacity:10}")
+    private int geminiCapacity;
+    @Value("${ratelimit.upstream.gemini.per-minute:10}")
+    private double geminiPerMinute;
+
+    private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> overflowBuckets = new ConcurrentHashMap<>();
+    private LongSupplier nanoClock = System::nanoTime;
+    private TokenBucket alphaVantage;
+    private TokenBucket gemini;
+
+    public RateLimiterService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        alphaVantage = new TokenBucket(alphaVantageCapacity, alphaVantagePerMinute);
+        gemini = new TokenBucket(geminiCapacity, geminiPerMinute);
+    }
+
+    /**
+     * Takes a token from the caller's bucket for the given scope.
+     * @param caller e.g. "ip:10.0.0.7:user:42" or "ip:10.0.0.7"
+     * @throws RateLimitExceededException if the bucket is empty.
+     */
+    public void acquire(String scope, String caller) {
+        if (!enabled) {
+            return;
+        }
+        take(clientBucket(scope, scope + '|' + caller), scope);
+    }
+
+    /**
+     * Takes a token from the global bucket of an upstream provider, just before calling it.
+     * @throws RateLimitExceededException if the provider quota is used up for now.
+     */
+    public void acquireUpstream(String provider) {
+        if (!enabled) {
+            return;
+        }
+        TokenBucket bucket = switch (provider) {
+            case ALPHA_VANTAGE -> alphaVantage;
+            case GEMINI -> gemini;
+            default -> throw new IllegalArgumentException("Unknown upstream provider: " + provider);
+        };
+        take(bucket, provider);
+    }
+
+    private void take(TokenBucket bucket, String scope) {
+        long waitNanos = bucket.tryAcquire();
+        if (waitNanos > 0) {
+            Counter.builder("ratelimit.rejected")
+                    .description("Requests refused by a rate limiter")
+                    .tag("scope", scope)
+                    .register(meterRegistry)
+                    .increment();
+            throw new RateLimitExceededException(scope, waitNanos);
+        }
+    }
+
+    private TokenBucket newClientBucket(String scope) {
+        return switch (scope) {
+            case PAYMENTS -> new TokenBucket(paymentsCapacity, paymentsPerMinute, nanoClock);
+            case STOCKS -> new TokenBucket(stocksCapacity, stocksPerMinute, nanoClock);
+            case AI -> new TokenBucket(aiCapacity, aiPerMinute, nanoClock);
+            default -> throw new IllegalArgumentException("Unknown rate limit scope: " + scope);
+        };
+    }
+
+    private TokenBucket clientBucket(String scope, String key) {
+        TokenBucket bucket = clientBuckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (clientBuckets.size() >= maxKeys) {
+            return overflowBuckets.computeIfAbsent(scope, this::newClientBucket);
+        }
+        return clientBuckets.computeIfAbsent(key, k -> newClientBucket(scope));
+    }
+
+    /**
+     * Forgets buckets that have refilled completely: a full bucket is indistinguishable from
+     * a new one. A caller racing the sweep can at most take one token from a bucket just
+     * dropped, which is the same as having been idle a moment longer.
+     */
+    @Scheduled(initialDelayString = "${ratelimit.evict-interval-ms:10000}",
+            fixedDelayString = "${ratelimit.evict-interval-ms:10000}")
+    void evictIdle() {
+        clientBuckets.forEach((key, bucket) -> clientBuckets.computeIfPresent(key, (k, b) -> b.isFull() ? null : b));
+    }
+}
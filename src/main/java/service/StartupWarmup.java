@@ -0,0 +1,80 @@
+package com.securepayments.service;
+
+import com.securepayments.model.Block;
+import com.securepayments.repository.BlockRepository;
+import com.securepayments.util.CryptoUtil;
+import com.securepayments.util.DifficultyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Warms the paths the first requests hit, before the web server starts accepting them:
+ * reads the chain tip (opening the connection pool and the Block query) and runs the
+ * SHA-256 / difficulty check used by mining and validation until the JIT has compiled it.
+ *
+ * Runs as a lifecycle phase rather than at bean creation, so it is skipped when the
+ * context only refreshes and exits (the AppCDS training run in the 'appcds' Maven profile).
+ */
+@Component
+public class StartupWarmup implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    // Lower than the embedded web server's phase, which starts after every bean using it
+    static final int PHASE = 0;
+
+    private final BlockRepository blockRepository;
+
+    @Value("${startup.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${startup.warmup.hash-iterations:20000}")
+    private int hashIterations;
+
+    private volatile boolean running;
+
+    public StartupWarmup(BlockRepository blockRepository) {
+        this.blockRepository = blockRepository;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        Block tip = blockRepository.findTopByOrderByBlockIndexDesc();
+        String header = (tip != null) ? tip.getBlockIndex() + tip.getHash() : "0";
+
+        // Same shape as the proof-of-work loop; the count keeps the JIT from dropping the work
+        int matches = 0;
+        for (int nonce = 0; nonce < hashIterations; nonce++) {
+            if (DifficultyUtil.meetsDifficulty(CryptoUtil.applySha256(header + nonce), 4)) {
+                matches++;
+            }
+        }
+        log.info("Startup warmup: chain tip {}, {} hashes ({} under 4 bits) in {} ms",
+                tip != null ? "#" + tip.getBlockIndex() : "none", hashIterations, matches,
+                System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -2,7 +2,11 @@ package com.securepayments.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -10,11 +14,14 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.time.Instant;
 
+// Created on the first stock request, with its RestTemplate; controllers hold a lazy proxy
 @Service
+@Lazy
 public class StockService {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final RateLimiterService rateLimiterService;
 
     // Configuration values read from application.properties
     @Value("${stock.api.base-url}")
@@ -29,9 +36,25 @@ public class StockService {
     // Cache expiry time (3600 seconds = 1 hour).
     private static final long CACHE_EXPIRY_SECONDS = 3600;
 
-    public StockService(RestTemplate restTemplate, ObjectMapper objectMapper) {
+    // --- Metrics ---
+    private final MeterRegistry meterRegistry;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public StockService(RestTemplate restTemplate, ObjectMapper objectMapper,
+                        RateLimiterService rateLimiterService, MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
+        this.rateLimiterService = rateLimiterService;
+        this.meterRegistry = meterRegistry;
+        this.cacheHits = Counter.builder("stocks.cache.requests")
+                .tag("result", "hit")
+                .description("Stock price lookups served from the in-memory cache")
+                .register(meterRegistry);
+        this.cacheMisses = Counter.builder("stocks.cache.requests")
+                .tag("result", "miss")
+                .description("Stock price lookups that had to call Alpha Vantage")
+                .register(meterRegistry);
     }
 
     /**
@@ -53,8 +76,10 @@ public class StockService {
                 cachedData.timestamp.plusSeconds(CACHE_EXPIRY_SECONDS).isAfter(now)) {
 
             System.out.println("Returning cached price for " + symbol);
+            cacheHits.increment();
             return cachedData.price;
         }
+        cacheMisses.increment();
 
         // 2. Fetch from External API
         try {
@@ -62,7 +87,7 @@ public class StockService {
             String url = String.format("%sfunction=GLOBAL_QUOTE&symbol=%s&apikey=%s",
                     stockApiBaseUrl, symbol, stockApiKey);
 
-            String apiResponse = restTemplate.getForObject(url, String.class);
+            String apiResponse = fetchUpstream("GLOBAL_QUOTE", url);
 
             // 3. Parse Price from JSON response
             JsonNode root = objectMapper.readTree(apiResponse);
@@ -79,6 +104,12 @@ public class StockService {
                 return "API Error: Check rate limit or symbol.";
             }
 
+        } catch (RateLimitExceededException e) {
+            // Out of Alpha Vantage quota: an old price beats a 429
+            if (cachedData != null) {
+                return cachedData.price + " (STALE)";
+            }
+            throw e;
         } catch (Exception e) {
             System.err.println("Error fetching stock price for " + symbol + ": " + e.getMessage());
             // Fallback: return the stale cached price if available, or N/A
@@ -108,10 +139,12 @@ public class StockService {
                     stockApiBaseUrl, keyword, stockApiKey);
 
             // Use RestTemplate to get the raw JSON response
-            String apiResponse = restTemplate.getForObject(url, String.class);
+            String apiResponse = fetchUpstream("SYMBOL_SEARCH", url);
 
             return apiResponse;
 
+        } catch (RateLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("Error searching stock symbol for " + keyword + ": " + e.getMessage());
             return "{\"error\":\"Connection Error or Invalid Request.\"}";
@@ -134,16 +167,38 @@ public class StockService {
             String url = String.format("%sfunction=TIME_SERIES_DAILY_ADJUSTED&symbol=%s&outputsize=compact&apikey=%s",
                     stockApiBaseUrl, symbol, stockApiKey);
 
-            String apiResponse = restTemplate.getForObject(url, String.class);
+            String apiResponse = fetchUpstream("TIME_SERIES_DAILY_ADJUSTED", url);
 
             return apiResponse;
 
+        } catch (RateLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("Error fetching historical stock series for " + symbol + ": " + e.getMessage());
             return "{\"Error Message\":\"Connection Error fetching historical data.\"}";
         }
     }
 
+    /**
+     * Performs the Alpha Vantage GET, recording its latency under "upstream.requests".
+     * Takes a token from the global Alpha Vantage bucket first, so we never exceed the API quota.
+     */
+    private String fetchUpstream(String function, String url) {
+        rateLimiterService.acquireUpstream(RateLimiterService.ALPHA_VANTAGE);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            String response = restTemplate.getForObject(url, String.class);
+            outcome = "success";
+            return response;
+        } finally {
+            sample.stop(Timer.builder("upstream.requests")
+                    .description("Latency of calls to external APIs")
+                    .tags("provider", "alpha-vantage", "operation", function, "outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
     // Simple private class to hold cached data
     private static class StockDataCache {
         final String price;
@@ -1,33 +1,108 @@
 package com.securepayments.service;
 
+import com.securepayments.dto.TransactionView;
+import com.securepayments.dto.UserView;
 import com.securepayments.model.PaymentTransaction;
 import com.securepayments.model.User;
+import com.securepayments.repository.ArchivedTransactionRepository;
 import com.securepayments.repository.TransactionRepository;
 import com.securepayments.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class TransactionService {
     private final TransactionRepository transactionRepository;
+    private final ArchivedTransactionRepository archiveRepository;
     private final UserRepository userRepository;
+    private final AccountCache accountCache;
+    private final FeeEstimatorService feeEstimatorService;
+    private final ActivityService activityService;
 
-    public TransactionService(TransactionRepository transactionRepository, UserRepository userRepository) {
+    // --- Payment Metrics ---
+    private final Timer createLatency;
+    private final Timer lockWait;
+
+    public TransactionService(TransactionRepository transactionRepository, ArchivedTransactionRepository archiveRepository,
+                              UserRepository userRepository, AccountCache accountCache, FeeEstimatorService feeEstimatorService,
+                              ActivityService activityService, MeterRegistry meterRegistry) {
         this.transactionRepository = transactionRepository;
+        this.archiveRepository = archiveRepository;
         this.userRepository = userRepository;
+        this.accountCache = accountCache;
+        this.feeEstimatorService = feeEstimatorService;
+        this.activityService = activityService;
+
+        this.createLatency = Timer.builder("payments.create")
+                .description("Latency of createTransaction, from lock acquisition to insert")
+                .register(meterRegistry);
+        this.lockWait = Timer.builder("payments.lock.wait")
+                .description("Time spent waiting for the sender and receiver row locks")
+                .register(meterRegistry);
+    }
+
+    // Read-only projection: one query, only the columns the UI shows, nothing for Hibernate to dirty-check.
+    // Recent rows only (pending and not yet archived); the archive is read on request, see getAll(from, to).
+    public List<TransactionView> getAll() {
+        return transactionRepository.findAllViews();
+    }
+
+    /**
+     * The recent transactions plus the archived ones of blocks [fromBlock, toBlock].
+     * Hot rows are read first, so a batch archived in between is duplicated (and dropped), never lost.
+     */
+    public List<TransactionView> getAll(int fromBlock, int toBlock) {
+        Map<Long, TransactionView> byId = new TreeMap<>();
+        transactionRepository.findAllViews().forEach(tx -> byId.put(tx.id(), tx));
+        archiveRepository.findViewsInBlocks(fromBlock, toBlock).forEach(tx -> byId.putIfAbsent(tx.id(), tx));
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Everything the user sent or received, recent and archived, in id order. Same read order
+     * as getAll(from, to): a batch archived in between shows up twice and is dropped once.
+     */
+    public List<TransactionView> getHistory(Long userId) {
+        Map<Long, TransactionView> byId = new TreeMap<>();
+        transactionRepository.findViewsByUser(userId).forEach(tx -> byId.put(tx.id(), tx));
+        archiveRepository.findViewsBySender(userId).forEach(tx -> byId.putIfAbsent(tx.id(), tx));
+        archiveRepository.findViewsByReceiver(userId).forEach(tx -> byId.putIfAbsent(tx.id(), tx));
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Looks a transaction up by its hash, in the hot table first and then in the archive.
+     * Hashes are not unique in theory; the oldest match wins.
+     */
+    public Optional<TransactionView> findByHash(String transactionHash) {
+        List<TransactionView> hot = transactionRepository.findViewsByHash(transactionHash);
+        if (!hot.isEmpty()) {
+            return Optional.of(hot.get(0));
+        }
+        return archiveRepository.findViewsByHash(transactionHash).stream().findFirst();
     }
 
-    public List<PaymentTransaction> getAll() {
-        // FIX: Use the eager fetch method to avoid N+1 queries for user/block details
-        return transactionRepository.findAllEagerly();
+    // Reads go through the account cache; balances are invalidated there after every commit that changes them
+    public Optional<UserView> findById(Long userId) {
+        return accountCache.findById(userId);
     }
 
-    public Optional<User> findById(Long userId) {
-        return userRepository.findById(userId);
+    public Optional<PaymentTransaction> findByIdempotencyKey(String idempotencyKey) {
+        return transactionRepository.findByIdempotencyKey(idempotencyKey);
     }
 
     // =========================================================================
@@ -35,6 +110,27 @@ public class TransactionService {
     // =========================================================================
     @Transactional
     public PaymentTransaction createTransaction(Long senderId, Long receiverId, BigDecimal amount, BigDecimal networkFee) {
+        return createTransaction(senderId, receiverId, amount, networkFee, null);
+    }
+
+    /**
+     * Same as above, but records the client's Idempotency-Key on the transaction. The unique
+     * column makes a duplicate insert fail (and roll back the debit) instead of paying twice.
+     */
+    @Transactional
+    public PaymentTransaction createTransaction(Long senderId, Long receiverId, BigDecimal amount,
+                                                BigDecimal networkFee, String idempotencyKey) {
+        Timer.Sample sample = Timer.start();
+        try {
+            return debitAndRecord(senderId, receiverId, amount, networkFee, idempotencyKey);
+        } finally {
+            sample.stop(createLatency);
+        }
+    }
+
+    private PaymentTransaction debitAndRecord(Long senderId, Long receiverId, BigDecimal amount,
+                                              BigDecimal networkFee, String idempotencyKey) {
+        Timer.Sample lockSample = Timer.start();
 
         // FIX 1: Fetch SENDER using the concurrency-safe locked method
         User sender = userRepository.findLockedById(senderId)
@@ -46,6 +142,72 @@ public class TransactionService {
         User receiver = userRepository.findLockedById(receiverId)
                 .orElseThrow(() -> new IllegalArgumentException("Receiver not found"));
 
+        lockSample.stop(lockWait);
+
+        PaymentTransaction tx = debit(sender, receiver, amount, networkFee);
+        tx.setIdempotencyKey(idempotencyKey);
+        activityService.recordPayments(List.of(tx));
+
+        accountCache.invalidateAfterCommit(List.of(senderId));
+        feeEstimatorService.pendingAddedAfterCommit(List.of(networkFee));
+        return transactionRepository.save(tx);
+    }
+
+    /**
+     * Group commit for the queued intake mode: applies a batch of payments in ONE database
+     * transaction. Every user involved is locked up front in ascending id order, so batches
+     * cannot deadlock each other, then each payment is checked against the running balance.
+     * A rejected payment (unknown user, insufficient funds) does not affect the rest.
+     * @return One outcome per request, in request order.
+     */
+    @Transactional
+    public List<PaymentOutcome> createTransactionBatch(List<PaymentRequest> requests) {
+        long start = System.nanoTime();
+        Set<Long> userIds = new TreeSet<>();
+        for (PaymentRequest request : requests) {
+            userIds.add(request.senderId());
+            userIds.add(request.receiverId());
+        }
+
+        Timer.Sample lockSample = Timer.start();
+        Map<Long, User> users = userRepository.findAllLockedByIdIn(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        lockSample.stop(lockWait);
+
+        List<PaymentOutcome> outcomes = new ArrayList<>(requests.size());
+        List<PaymentTransaction> created = new ArrayList<>(requests.size());
+        for (PaymentRequest request : requests) {
+            User sender = users.get(request.senderId());
+            User receiver = users.get(request.receiverId());
+            if (sender == null) {
+                outcomes.add(PaymentOutcome.rejected(new IllegalArgumentException("Sender not found")));
+            } else if (receiver == null) {
+                outcomes.add(PaymentOutcome.rejected(new IllegalArgumentException("Receiver not found")));
+            } else {
+                try {
+                    PaymentTransaction tx = debit(sender, receiver, request.amount(), request.networkFee());
+                    tx.setIdempotencyKey(request.idempotencyKey());
+                    created.add(tx);
+                    outcomes.add(PaymentOutcome.accepted(tx));
+                } catch (IllegalStateException e) {
+                    outcomes.add(PaymentOutcome.rejected(e));
+                }
+            }
+        }
+
+        // Debited users are managed entities and are flushed by dirty checking on commit
+        transactionRepository.saveAll(created);
+        activityService.recordPayments(created);
+        accountCache.invalidateAfterCommit(created.stream().map(tx -> tx.getSender().getId()).distinct().toList());
+        feeEstimatorService.pendingAddedAfterCommit(created.stream().map(PaymentTransaction::getNetworkFee).toList());
+
+        // Each payment took as long as its batch, from lock acquisition to insert
+        long elapsed = System.nanoTime() - start;
+        created.forEach(tx -> createLatency.record(elapsed, TimeUnit.NANOSECONDS));
+        return outcomes;
+    }
+
+    private PaymentTransaction debit(User sender, User receiver, BigDecimal amount, BigDecimal networkFee) {
         BigDecimal totalDeduction = amount.add(networkFee);
 
         // 1. Mandatory Balance Check for Security
@@ -59,26 +221,31 @@ public class TransactionService {
         userRepository.save(sender);
 
         // 3. Create the Transaction model
-        PaymentTransaction tx = new PaymentTransaction(sender, receiver, amount, networkFee);
-
-        return transactionRepository.save(tx);
+        return new PaymentTransaction(sender, receiver, amount, networkFee);
     }
-    // =========================================================================
 
-    public void deleteUser(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
+    /**
+     * Result of one payment inside a batch: either the created transaction or the reason it was rejected.
+     */
+    public record PaymentOutcome(PaymentTransaction transaction, RuntimeException rejection) {
+        static PaymentOutcome accepted(PaymentTransaction transaction) {
+            return new PaymentOutcome(transaction, null);
+        }
 
-        transactionRepository.deleteBySenderIdOrReceiverId(userId, userId);
-        userRepository.delete(user);
+        static PaymentOutcome rejected(RuntimeException rejection) {
+            return new PaymentOutcome(null, rejection);
+        }
     }
+    // =========================================================================
 
     public User createUser(String name, String email, BigDecimal balance) {
         User u = new User(name, email, balance);
-        return userRepository.save(u);
+        User saved = userRepository.save(u);
+        accountCache.membershipChangedAfterCommit(List.of(saved.getId()));
+        return saved;
     }
 
-    public List<User> listUsers() {
-        return userRepository.findAll();
+    public List<UserView> listUsers() {
+        return accountCache.findAll();
     }
 }
\ No newline at end of file
@@ -0,0 +1,322 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.DeletionJobView;
+import com.securepayments.dto.PendingTransferView;
+import com.securepayments.model.User;
+import com.securepayments.repository.ArchivedTransactionRepository;
+import com.securepayments.repository.TransactionRepository;
+import com.securepayments.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Deletes users in the background, one bounded chunk per database transaction, so a
+ * user with a long history neither blocks the request nor holds locks for long.
+ *
+ * What happens to the user's transactions:
+ * - pending, sent by the user: deleted, and amount + fee credited back to the user, so a
+ *   job that fails before the user row goes leaves the balance as it was
+ * - pending, sent to the user: deleted, and amount + fee refunded to the sender
+ * - mined: kept in their block, which stays valid because its hash covers the
+ *   transaction hash and amount only; the sender/receiver link is set to NULL,
+ *   in the hot table and then in the archive (one range of blocks per chunk)
+ *
+ * Jobs run one at a time on a single worker thread.
+ */
+@Service
+public class UserDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDeletionService.class);
+
+    // Re-scans before giving up when new payments keep arriving for the user being deleted
+    private static final int MAX_FINAL_ATTEMPTS = 5;
+    private static final Duration FINISHED_JOB_RETENTION = Duration.ofHours(1);
+
+    private final TransactionRepository transactionRepository;
+    private final ArchivedTransactionRepository archiveRepository;
+    private final UserRepository userRepository;
+    private final AccountCache accountCache;
+    private final FeeEstimatorService feeEstimatorService;
+    private final ActivityService activityService;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer chunkTimer;
+
+    @Value("${users.deletion.chunk-size:500}")
+    private int chunkSize;
+
+    // Archived blocks are detached this many at a time (aligned with the archive's block-index key)
+    @Value("${users.deletion.archive-block-range:1000}")
+    private int archiveBlockRange;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "user-deletion");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public UserDeletionService(TransactionRepository transactionRepository,
+                               ArchivedTransactionRepository archiveRepository, UserRepository userRepository,
+                               AccountCache accountCache, FeeEstimatorService feeEstimatorService,
+                               ActivityService activityService, TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.archiveRepository = archiveRepository;
+        this.userRepository = userRepository;
+        this.accountCache = accountCache;
+        this.feeEstimatorService = feeEstimatorService;
+        this.activityService = activityService;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkTimer = Timer.builder("users.deletion.chunk")
+                .description("Time to apply and commit one chunk of a user deletion")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        worker.shutdown();
+        worker.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Schedules the deletion and returns immediately. Asking again for a user whose
+     * deletion is still queued or running returns that job instead of starting another.
+     * @throws IllegalArgumentException if the user does not exist.
+     */
+    public DeletionJobView submit(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found with ID: " + userId);
+        }
+        pruneFinishedJobs();
+
+        for (Job existing : jobs.values()) {
+            if (existing.userId.equals(userId) && !existing.isFinished()) {
+                return existing.view();
+            }
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), userId);
+        jobs.put(job.id, job);
+        worker.execute(() -> run(job));
+        return job.view();
+    }
+
+    public Optional<DeletionJobView> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::view);
+    }
+
+    // =========================================================================
+    // JOB EXECUTION
+    // =========================================================================
+
+    private void run(Job job) {
+        job.state = "RUNNING";
+        try {
+            for (int attempt = 1; ; attempt++) {
+                deletePendingSent(job);
+                refundPendingReceived(job);
+                detachMined(job);
+                if (deleteUserRow(job.userId)) {
+                    break;
+                }
+                if (attempt == MAX_FINAL_ATTEMPTS) {
+                    throw new IllegalStateException("User " + job.userId
+                            + " kept receiving new transactions during deletion");
+                }
+            }
+            job.state = "COMPLETED";
+        } catch (RuntimeException e) {
+            log.error("Deletion of user {} failed", job.userId, e);
+            job.error = e.getMessage();
+            job.state = "FAILED";
+        } finally {
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    private void deletePendingSent(Job job) {
+        forEachChunk(page -> {
+            List<PendingTransferView> transfers = transactionRepository.findPendingTransfersBySender(job.userId, page);
+            if (transfers.isEmpty()) {
+                return 0;
+            }
+
+            // Chunks commit one by one, so the money goes back now rather than with the user row
+            BigDecimal refund = transfers.stream()
+                    .map(t -> t.amount().add(t.networkFee()))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            if (userRepository.creditBalance(job.userId, refund) != 1) {
+                throw new IllegalStateException("User " + job.userId + " not found");
+            }
+
+            int deleted = transactionRepository.deletePendingByIdIn(
+                    transfers.stream().map(PendingTransferView::id).toList());
+            if (deleted != transfers.size()) {
+                throw new IllegalStateException("Pending transactions changed while refunding");
+            }
+            job.pendingDeleted.addAndGet(deleted);
+            // Keeps the aggregates matching the ledger even if the job fails before the user row goes
+            activityService.reversePendingPayments(transfers);
+            accountCache.invalidateAfterCommit(List.of(job.userId));
+            feeEstimatorService.pendingRemovedAfterCommit(
+                    transfers.stream().map(PendingTransferView::networkFee).toList());
+            return transfers.size();
+        });
+    }
+
+    private void refundPendingReceived(Job job) {
+        forEachChunk(page -> {
+            List<PendingTransferView> transfers = transactionRepository.findPendingTransfersByReceiver(job.userId, page);
+            if (transfers.isEmpty()) {
+                return 0;
+            }
+
+            // One credit per sender, in ascending id order like the other multi-row updates
+            Map<Long, BigDecimal> refunds = new TreeMap<>();
+            for (PendingTransferView t : transfers) {
+                refunds.merge(t.senderId(), t.amount().add(t.networkFee()), BigDecimal::add);
+            }
+            refunds.forEach((senderId, refund) -> {
+                if (userRepository.creditBalance(senderId, refund) != 1) {
+                    throw new IllegalStateException("Refund target " + senderId + " not found");
+                }
+            });
+
+            int deleted = transactionRepository.deletePendingByIdIn(
+                    transfers.stream().map(PendingTransferView::id).toList());
+            if (deleted != transfers.size()) {
+                // Rows are locked by the select, so this only happens if something bypassed the lock
+                throw new IllegalStateException("Pending transactions changed while refunding");
+            }
+            job.pendingRefunded.addAndGet(deleted);
+            activityService.reversePendingPayments(transfers);
+            accountCache.invalidateAfterCommit(refunds.keySet());
+            feeEstimatorService.pendingRemovedAfterCommit(
+                    transfers.stream().map(PendingTransferView::networkFee).toList());
+            return transfers.size();
+        });
+    }
+
+    private void detachMined(Job job) {
+        forEachChunk(page -> {
+            List<Long> ids = transactionRepository.findMinedIdsBySender(job.userId, page);
+            if (!ids.isEmpty()) {
+                job.minedDetached.addAndGet(transactionRepository.detachSender(ids));
+            }
+            return ids.size();
+        });
+        forEachChunk(page -> {
+            List<Long> ids = transactionRepository.findMinedIdsByReceiver(job.userId, page);
+            if (!ids.isEmpty()) {
+                job.minedDetached.addAndGet(transactionRepository.detachReceiver(ids));
+            }
+            return ids.size();
+        });
+        // After the hot table: rows archived while it was being detached are caught here
+        detachArchived(job);
+    }
+
+    private void detachArchived(Job job) {
+        Optional<Integer> first = archiveRepository.findMinBlockIndex();
+        Optional<Integer> last = archiveRepository.findMaxBlockIndex();
+        if (first.isEmpty() || last.isEmpty()) {
+            return;
+        }
+        for (int from = first.get(); from <= last.get(); from += archiveBlockRange) {
+            int to = from + archiveBlockRange - 1;
+            int fromBlock = from;
+            chunkTimer.record(() -> transactionTemplate.executeWithoutResult(status -> job.minedDetached.addAndGet(
+                    archiveRepository.detachSender(job.userId, fromBlock, to)
+                            + archiveRepository.detachReceiver(job.userId, fromBlock, to))));
+        }
+    }
+
+    /**
+     * Removes the user row under its lock, so no payment can reference the user in between.
+     * @return false if transactions arrived since the chunks ran and another pass is needed.
+     */
+    private boolean deleteUserRow(Long userId) {
+        Boolean deleted = transactionTemplate.execute(status -> {
+            Optional<User> user = userRepository.findLockedById(userId);
+            if (user.isEmpty()) {
+                return true; // already gone
+            }
+            if (transactionRepository.countBySenderIdOrReceiverId(userId, userId) > 0) {
+                return false;
+            }
+            userRepository.delete(user.get());
+            activityService.deleteUser(userId);
+            accountCache.membershipChangedAfterCommit(List.of(userId));
+            return true;
+        });
+        return Boolean.TRUE.equals(deleted);
+    }
+
+    /**
+     * Runs chunk after chunk, each in its own transaction, until one processes fewer rows
+     * than the chunk size. Every chunk removes what it processed from the next query's
+     * result, so the first page is always the next one.
+     */
+    private void forEachChunk(Function<Pageable, Integer> chunk) {
+        Pageable firstPage = PageRequest.of(0, chunkSize);
+        int processed;
+        do {
+            processed = chunkTimer.record(() -> transactionTemplate.execute(status -> chunk.apply(firstPage)));
+        } while (processed == chunkSize);
+    }
+
+    private void pruneFinishedJobs() {
+        Instant cutoff = Instant.now().minus(FINISHED_JOB_RETENTION);
+        jobs.values().removeIf(job -> job.isFinished() && job.finishedAt.isBefore(cutoff));
+    }
+
+    // Simple private class holding one job's live progress
+    private static class Job {
+        final String id;
+        final Long userId;
+        final Instant submittedAt = Instant.now();
+        final AtomicLong pendingDeleted = new AtomicLong();
+        final AtomicLong pendingRefunded = new AtomicLong();
+        final AtomicLong minedDetached = new AtomicLong();
+        volatile String state = "QUEUED";
+        volatile Instant finishedAt;
+        volatile String error;
+
+        Job(String id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        DeletionJobView view() {
+            return new DeletionJobView(id, userId, state, pendingDeleted.get(), pendingRefunded.get(),
+                    minedDetached.get(), submittedAt, finishedAt, error);
+        }
+    }
+}
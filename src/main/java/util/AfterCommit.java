@@ -0,0 +1,27 @@
+package com.securepayments.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory bookkeeping (caches, estimators) until the surrounding database
+ * transaction has committed, so a rollback never leaves them ahead of the database.
+ */
+public class AfterCommit {
+
+    /**
+     * Runs the action after the current transaction commits, or immediately if there is none.
+     */
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
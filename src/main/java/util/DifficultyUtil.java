@@ -0,0 +1,50 @@
+package com.securepayments.util;
+
+/**
+ * Proof-of-work difficulty helpers. Difficulty is expressed in leading zero
+ * BITS of the SHA-256 hash, so 12 bits is the old "000" hex prefix and each
+ * step doubles (or halves) the expected work.
+ */
+public class DifficultyUtil {
+
+    /**
+     * Returns true if the hex-encoded hash starts with at least {@code bits} zero bits.
+     */
+    public static boolean meetsDifficulty(String hexHash, int bits) {
+        int fullNibbles = bits / 4;
+        if (hexHash.length() < fullNibbles + (bits % 4 == 0 ? 0 : 1)) {
+            return false;
+        }
+        for (int i = 0; i < fullNibbles; i++) {
+            if (hexHash.charAt(i) != '0') {
+                return false;
+            }
+        }
+        int remainingBits = bits % 4;
+        if (remainingBits == 0) {
+            return true;
+        }
+        // e.g. 2 remaining bits: the next nibble must be < 0b0100
+        return Character.digit(hexHash.charAt(fullNibbles), 16) < (1 << (4 - remainingBits));
+    }
+
+    /**
+     * Computes the difficulty for the next retarget window.
+     *
+     * The adjustment is log2(expected / actual) rounded to whole bits, so blocks that
+     * arrive twice as fast as the target add one bit. The step is clamped to
+     * +/- maxStepBits per window to damp oscillation from lucky or unlucky windows.
+     *
+     * @param currentBits      difficulty of the window that just finished
+     * @param actualTimespanMs observed time between the first and last block of the window
+     * @param targetTimespanMs target interval multiplied by the number of intervals observed
+     */
+    public static int retarget(int currentBits, long actualTimespanMs, long targetTimespanMs,
+                               int maxStepBits, int minBits, int maxBits) {
+        long actual = Math.max(1, actualTimespanMs);
+        double ratio = (double) targetTimespanMs / actual;
+        int step = (int) Math.round(Math.log(ratio) / Math.log(2));
+        step = Math.max(-maxStepBits, Math.min(maxStepBits, step));
+        return Math.max(minBits, Math.min(maxBits, currentBits + step));
+    }
+}
@@ -0,0 +1,66 @@
+package com.securepayments.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket, stored as a single "theoretical arrival time" (the GCRA form):
+ * the instant at which the bucket would be full again. Taking a token pushes that instant
+ * one refill interval into the future; the request is refused if that would put it more
+ * than a full bucket's worth of intervals ahead of now.
+ *
+ * One AtomicLong and a CAS loop per request, so there is no lock to contend on and no
+ * background refill thread.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;  // time to earn one token
+    private final long burstNanos;     // capacity * intervalNanos
+    private final LongSupplier clock;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param capacity        maximum burst
+     * @param refillPerMinute steady-state rate
+     */
+    public TokenBucket(int capacity, double refillPerMinute) {
+        this(capacity, refillPerMinute, System::nanoTime);
+    }
+
+    public TokenBucket(int capacity, double refillPerMinute, LongSupplier nanoClock) {
+        if (capacity < 1 || refillPerMinute <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.intervalNanos = (long) (TimeUnit.MINUTES.toNanos(1) / refillPerMinute);
+        this.burstNanos = intervalNanos * capacity;
+        this.clock = nanoClock;
+        this.theoreticalArrival = new AtomicLong(nanoClock.getAsLong()); // starts full
+    }
+
+    /**
+     * Takes one token if available.
+     * @return 0 if the token was taken, otherwise the nanoseconds until one will be.
+     */
+    public long tryAcquire() {
+        while (true) {
+            long now = clock.getAsLong();
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long ahead = next - now;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * True once the bucket has refilled completely, i.e. it has been idle long enough to forget.
+     */
+    public boolean isFull() {
+        return theoreticalArrival.get() - clock.getAsLong() <= 0;
+    }
+}
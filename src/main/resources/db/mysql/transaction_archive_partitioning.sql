@@ -0,0 +1,20 @@
+-- =========================================================================
+-- Range partitioning for transaction_archive (MySQL 8), keyed by block index.
+-- Hibernate creates the table unpartitioned; run this once after the first startup.
+-- The primary key (block_index, id) already contains the partitioning column, as
+-- MySQL requires. Old ranges can then be dropped or moved with partition operations
+-- instead of row-by-row deletes.
+-- =========================================================================
+ALTER TABLE transaction_archive
+    PARTITION BY RANGE (block_index) (
+        PARTITION p00 VALUES LESS THAN (10000),
+        PARTITION p01 VALUES LESS THAN (20000),
+        PARTITION p02 VALUES LESS THAN (30000),
+        PARTITION pmax VALUES LESS THAN MAXVALUE
+    );
+
+-- As the chain grows, split the catch-all partition before archiving reaches it:
+-- ALTER TABLE transaction_archive REORGANIZE PARTITION pmax INTO (
+--     PARTITION p03 VALUES LESS THAN (40000),
+--     PARTITION pmax VALUES LESS THAN MAXVALUE
+-- );
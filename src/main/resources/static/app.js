@@ -136,6 +136,7 @@ async function handlePaymentPageLoad() {
 
     setupPaymentEventListeners();
     loadPaymentContext();
+    loadFeeSuggestions();
 
     const paymentView = document.getElementById('payment-view');
     if (paymentView) paymentView.classList.remove('hidden');
@@ -421,10 +422,10 @@ async function loadPaymentContext() {
 /**
  * Generic utility for fetching data from the API.
  */
-async function fetchData(endpoint, method = 'GET', body = null) {
+async function fetchData(endpoint, method = 'GET', body = null, extraHeaders = {}) {
     try {
         const url = API_URL + endpoint;
-        const options = { method, headers: { 'Content-Type': 'application/json' } };
+        const options = { method, headers: { 'Content-Type': 'application/json', ...extraHeaders } };
         if (body) {
             options.body = JSON.stringify(body);
         }
@@ -509,7 +510,7 @@ async function fetchProfileData() {
 
     tbody.innerHTML = '<tr><td colspan="4" class="text-center py-4 text-gray-500">Loading transactions...</td></tr>';
 
-    const txs = await fetchData('/transactions');
+    const txs = await fetchData(`/users/${CURRENT_USER_ID}/transactions`);
 
     if (txs) {
         tbody.innerHTML = "";
@@ -563,7 +564,7 @@ async function getTransactions() {
 
     tbody.innerHTML = '<tr><td colspan="6" class="text-center py-4 text-gray-500">Loading transactions...</td></tr>';
 
-    const txs = await fetchData('/transactions');
+    const txs = await fetchData(`/users/${CURRENT_USER_ID}/transactions`);
 
     if (txs) {
         tbody.innerHTML = "";
@@ -925,16 +926,16 @@ async function showUserHistory(counterpartyId) {
 
     historyContainer.innerHTML = `<p class="text-yellow-500 text-center py-4">Loading transaction history...</p>`;
 
-    const allTxs = await fetchData('/transactions');
+    const allTxs = await fetchData(`/users/${CURRENT_USER_ID}/transactions`);
 
     if (!allTxs) {
         historyContainer.innerHTML = `<p class="text-red-500 text-center py-4">Failed to load history.</p>`;
         return;
     }
 
-    // Filter transactions relevant to the CURRENT_USER_ID and the counterpartyId
+    // The current user's history (recent and archived); keep the payments exchanged with counterpartyId
     const relevantTxs = allTxs.filter(tx =>
-        (tx.sender?.id === CURRENT_USER_ID) || (tx.receiver?.id === counterpartyId) ||
+        (tx.sender?.id === CURRENT_USER_ID && tx.receiver?.id === counterpartyId) ||
         (tx.sender?.id === counterpartyId && tx.receiver?.id === CURRENT_USER_ID)
     ).sort((a, b) => new Date(b.createdAt) - new Date(a.createdAt));
 
@@ -958,7 +959,7 @@ async function showUserHistory(counterpartyId) {
             </thead>
             <tbody class="divide-y divide-gray-700">
                 ${relevantTxs.map(tx => {
-        const isSent = tx.sender.id === CURRENT_USER_ID;
+        const isSent = tx.sender?.id === CURRENT_USER_ID;
         const amountDisplay = isSent
             ? `<span class="text-secondary-red font-semibold">- ₹${tx.amount.toFixed(2)}</span>`
             : `<span class="text-green-500 font-semibold">+ ₹${tx.amount.toFixed(2)}</span>`;
@@ -1080,6 +1081,47 @@ async function showConfirmationModal() {
     finalConfirmBtn.disabled = false;
 }
 
+/**
+ * Shows the server's suggested fees under the fee input; clicking one fills it in.
+ */
+async function loadFeeSuggestions() {
+    const container = document.getElementById('fee-suggestions');
+    if (!container) return;
+
+    const estimate = await fetchData('/fees/estimate');
+    if (!estimate) return;
+
+    container.innerHTML = ['slow', 'normal', 'fast'].map(tier => `
+        <button type="button" class="btn-secondary px-2 py-1" data-fee="${estimate[tier]}">
+            ${tier.charAt(0).toUpperCase() + tier.slice(1)}: ${Number(estimate[tier])}
+        </button>`).join('');
+    container.querySelectorAll('button').forEach(btn => btn.addEventListener('click', () => {
+        document.getElementById('networkFee').value = btn.dataset.fee;
+    }));
+    container.classList.remove('hidden');
+}
+
+// The pending payment's Idempotency-Key, kept with its payload until the server gives a definite
+// answer: a retry after a timeout or a 503 (even after a reload) resends the same key, so it cannot
+// debit twice. Changing the payment details starts a new payment with a new key.
+const PENDING_PAYMENT_STORAGE = 'securepay_pending_payment';
+
+function idempotencyKeyFor(txBody) {
+    const payload = JSON.stringify(txBody);
+    const pending = JSON.parse(sessionStorage.getItem(PENDING_PAYMENT_STORAGE) || 'null');
+    if (pending && pending.payload === payload) return pending.key;
+
+    const key = crypto.randomUUID();
+    sessionStorage.setItem(PENDING_PAYMENT_STORAGE, JSON.stringify({ payload, key }));
+    return key;
+}
+
+// 2xx, or a 4xx that says the payment was refused; timeouts, 409/429 and 5xx leave the outcome open
+function isDefiniteOutcome(status) {
+    return (status >= 200 && status < 300) ||
+        (status >= 400 && status < 500 && ![408, 409, 425, 429].includes(status));
+}
+
 async function sendTransaction() {
     document.getElementById('confirmation-modal')?.classList.add('hidden');
 
@@ -1089,14 +1131,36 @@ async function sendTransaction() {
         amount: parseFloat(document.getElementById('amount').value),
         networkFee: parseFloat(document.getElementById('networkFee').value)
     };
+    const idempotencyKey = idempotencyKeyFor(txBody);
 
-    const newTx = await fetchData('/transactions', 'POST', txBody);
+    let response;
+    try {
+        response = await fetch(API_URL + '/transactions', {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json', 'Idempotency-Key': idempotencyKey },
+            body: JSON.stringify(txBody)
+        });
+    } catch (error) {
+        console.error('Fetch Error:', error);
+        alert(`Payment not confirmed (${error.message}). Confirm again to retry; it will not be debited twice.`);
+        return;
+    }
 
-    if (newTx) {
-        alert(`✅ Payment initiated successfully! Status: ${newTx.status}. Your balance has been debited.`);
-        localStorage.setItem('session_refresh_needed', 'true');
-        window.location.href = 'index.html';
+    if (isDefiniteOutcome(response.status)) {
+        sessionStorage.removeItem(PENDING_PAYMENT_STORAGE);
     }
+    if (!response.ok) {
+        const errorText = await response.text();
+        alert(isDefiniteOutcome(response.status)
+            ? `Operation Failed: API Error (${response.status}): ${errorText}`
+            : `Payment not confirmed (${response.status}). Confirm again to retry; it will not be debited twice.`);
+        return;
+    }
+
+    const newTx = await response.json();
+    alert(`✅ Payment initiated successfully! Status: ${newTx.status}. Your balance has been debited.`);
+    localStorage.setItem('session_refresh_needed', 'true');
+    window.location.href = 'index.html';
 }
 
 function showBlockchainDetails(hash) {
@@ -1274,18 +1338,28 @@ function promptDeleteUser(userId, userName) {
         return;
     }
 
-    if (window.confirm(`WARNING: Are you sure you want to delete user ${userName} (ID ${userId})? This will also delete all their transaction history!`)) {
+    if (window.confirm(`WARNING: Are you sure you want to delete user ${userName} (ID ${userId})? Their pending transactions are cancelled (payments to them are refunded); mined history stays on the chain.`)) {
         deleteUser(userId);
     }
 }
 
 async function deleteUser(userId) {
-    const result = await fetchData(`/users/${userId}`, 'DELETE');
+    const job = await fetchData(`/users/${userId}`, 'DELETE');
+    if (!job || !job.jobId) return;
+
+    // Deletion runs in the background; poll until the job finishes
+    let status = job;
+    while (status && (status.state === 'QUEUED' || status.state === 'RUNNING')) {
+        await new Promise(resolve => setTimeout(resolve, 500));
+        status = await fetchData(`/users/deletions/${job.jobId}`);
+    }
 
-    if (result === true) {
-        alert(`🗑️ User ID ${userId} deleted successfully.`);
-        getUsers();
+    if (status && status.state === 'COMPLETED') {
+        alert(`🗑️ User ID ${userId} deleted. ${status.pendingDeleted + status.pendingRefunded} pending transaction(s) cancelled, ${status.minedDetached} mined transaction(s) kept on chain.`);
+    } else if (status) {
+        alert(`❌ Deleting user ID ${userId} failed: ${status.error}`);
     }
+    getUsers();
 }
 
 async function mineBlock() {
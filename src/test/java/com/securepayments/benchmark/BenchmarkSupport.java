@@ -0,0 +1,87 @@
+package com.securepayments.benchmark;
+
+import com.securepayments.service.BlockchainService;
+import com.securepayments.service.TransactionService;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seeding, timing and reporting shared by the read-path benchmarks, so they all run
+ * against the same data shape and measure the same way.
+ *
+ *   -Dbenchmark.users=200 -Dbenchmark.transactions=5000
+ */
+final class BenchmarkSupport {
+
+    static final int USERS = Integer.getInteger("benchmark.users", 200);
+    static final int TRANSACTIONS = Integer.getInteger("benchmark.transactions", 5000);
+    static final int PER_BLOCK = 250;
+    static final int WARMUP = 20;
+    static final int ITERATIONS = 50;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Creates USERS funded users and TRANSACTIONS random payments between them, mining a
+     * block every PER_BLOCK payments.
+     */
+    static void seed(TransactionService transactionService, BlockchainService blockchainService) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            ids.add(transactionService.createUser("bench-" + i, "bench" + i + "@example.test", new BigDecimal("1000000")).getId());
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Long sender = ids.get(random.nextInt(ids.size()));
+            Long receiver = ids.get(random.nextInt(ids.size()));
+            if (sender.equals(receiver)) {
+                continue;
+            }
+            transactionService.createTransaction(sender, receiver, BigDecimal.valueOf(random.nextInt(1, 100)), new BigDecimal("0.01"));
+            if (i % PER_BLOCK == PER_BLOCK - 1) {
+                blockchainService.minePendingTransactions();
+            }
+        }
+    }
+
+    /**
+     * Runs the call WARMUP times, then ITERATIONS timed times on this thread.
+     * @return mean latency, bytes allocated per call and the size of the last payload.
+     */
+    static Result measure(String name, Callable<byte[]> call) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int payload = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            payload = call.call().length;
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.call();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new Result(name, elapsed / 1e6 / ITERATIONS, allocated / ITERATIONS, payload);
+    }
+
+    /**
+     * Prints a titled table with the seed sizes above it; rows are formatted by the caller.
+     */
+    static void print(String title, String header, List<String> rows) {
+        String banner = "==================== " + title + " ====================";
+        System.out.println(banner);
+        System.out.printf("users=%d transactions=%d iterations=%d%n", USERS, TRANSACTIONS, ITERATIONS);
+        System.out.println(header);
+        rows.forEach(System.out::println);
+        System.out.println("=".repeat(banner.length()));
+    }
+
+    record Result(String name, double meanMillis, long allocatedBytes, int payloadBytes) {}
+}
@@ -0,0 +1,84 @@
+package com.securepayments.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securepayments.model.PaymentTransaction;
+import com.securepayments.repository.BlockRepository;
+import com.securepayments.repository.UserRepository;
+import com.securepayments.service.BlockchainService;
+import com.securepayments.service.TransactionService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static com.securepayments.benchmark.BenchmarkSupport.measure;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the old entity-graph reads (fetch-joined entities serialized by Jackson inside
+ * a session, as open-in-view did) against the read-only DTO projections, for the
+ * transaction list, blockchain and user list endpoints. Reports latency, bytes allocated
+ * per call (the heap pressure) and payload size.
+ *
+ *   mvn test -Dtest=ProjectionBenchmarkTest -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProjectionBenchmarkTest {
+
+    // The query GET /api/transactions used before projections
+    private static final String ENTITY_TRANSACTIONS_QUERY = "SELECT DISTINCT pt FROM PaymentTransaction pt " +
+            "LEFT JOIN FETCH pt.sender s LEFT JOIN FETCH pt.receiver r LEFT JOIN FETCH pt.block b";
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private BlockchainService blockchainService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private BlockRepository blockRepository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Test
+    void entityGraphsVersusProjections() throws Exception {
+        BenchmarkSupport.seed(transactionService, blockchainService);
+
+        List<BenchmarkSupport.Result> results = new ArrayList<>();
+        results.add(measure("transactions / entities", () -> inSession(() -> entityManager
+                .createQuery(ENTITY_TRANSACTIONS_QUERY, PaymentTransaction.class).getResultList())));
+        results.add(measure("transactions / views", () -> objectMapper.writeValueAsBytes(transactionService.getAll())));
+        results.add(measure("blockchain / entities", () -> inSession(blockRepository::findAllWithTransactions)));
+        results.add(measure("blockchain / views", () -> objectMapper.writeValueAsBytes(blockchainService.getChain())));
+        results.add(measure("users / entities", () -> inSession(userRepository::findAll)));
+        results.add(measure("users / views", () -> objectMapper.writeValueAsBytes(userRepository.findAllViews())));
+
+        BenchmarkSupport.print("PROJECTION BENCHMARK",
+                String.format("%-26s %12s %16s %14s", "endpoint / read model", "mean ms", "alloc KB/call", "payload KB"),
+                results.stream().map(r -> String.format("%-26s %12.2f %16.1f %14.1f",
+                        r.name(), r.meanMillis(), r.allocatedBytes() / 1024.0, r.payloadBytes() / 1024.0)).toList());
+
+        for (int i = 0; i < results.size(); i += 2) {
+            // The user view has the same fields as the entity, so its payload can only match
+            assertTrue(results.get(i + 1).payloadBytes() <= results.get(i).payloadBytes(),
+                    results.get(i + 1).name() + " should not produce a larger payload");
+        }
+    }
+
+    // Loads and serializes inside one transaction, as the open-in-view session did for the entity endpoints
+    private byte[] inSession(Callable<List<?>> query) {
+        return transactionTemplate.execute(status -> {
+            try {
+                return objectMapper.writeValueAsBytes(query.call());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.securepayments.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.securepayments.service.BlockchainService;
+import com.securepayments.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static com.securepayments.benchmark.BenchmarkSupport.measure;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the wire formats offered by GET /api/transactions and /api/blockchain:
+ * JSON, gzipped JSON (what server.compression sends), Smile and CBOR, all produced
+ * by copies of the application ObjectMapper. Reports payload bytes, encode time and
+ * bytes allocated per encode.
+ *
+ *   mvn test -Dtest=WireFormatBenchmarkTest -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class WireFormatBenchmarkTest {
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private BlockchainService blockchainService;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Test
+    void binaryFormatsAreSmallerThanJson() throws Exception {
+        BenchmarkSupport.seed(transactionService, blockchainService);
+        ObjectMapper smile = objectMapper.copyWith(new SmileFactory());
+        ObjectMapper cbor = objectMapper.copyWith(new CBORFactory());
+
+        List<BenchmarkSupport.Result> results = new ArrayList<>();
+        for (Payload payload : List.of(
+                new Payload("transactions", transactionService.getAll()),
+                new Payload("blockchain", blockchainService.getChain()))) {
+            results.add(measure(payload.name + " / json", () -> objectMapper.writeValueAsBytes(payload.body)));
+            results.add(measure(payload.name + " / json+gzip", () -> gzip(objectMapper.writeValueAsBytes(payload.body))));
+            results.add(measure(payload.name + " / smile", () -> smile.writeValueAsBytes(payload.body)));
+            results.add(measure(payload.name + " / cbor", () -> cbor.writeValueAsBytes(payload.body)));
+        }
+
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            BenchmarkSupport.Result r = results.get(i);
+            BenchmarkSupport.Result json = results.get(i - i % 4);
+            rows.add(String.format("%-26s %12.2f %16.1f %14.1f %9.0f%%", r.name(), r.meanMillis(), r.allocatedBytes() / 1024.0,
+                    r.payloadBytes() / 1024.0, 100.0 * r.payloadBytes() / json.payloadBytes()));
+        }
+        BenchmarkSupport.print("WIRE FORMAT BENCHMARK",
+                String.format("%-26s %12s %16s %14s %10s", "endpoint / format", "encode ms", "alloc KB/call", "payload KB", "vs json"),
+                rows);
+
+        for (int i = 0; i < results.size(); i += 4) {
+            assertTrue(results.get(i + 2).payloadBytes() < results.get(i).payloadBytes(), results.get(i + 2).name() + " should beat JSON");
+            assertTrue(results.get(i + 3).payloadBytes() < results.get(i).payloadBytes(), results.get(i + 3).name() + " should beat JSON");
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private record Payload(String name, Object body) {}
+}
@@ -0,0 +1,286 @@
+package com.securepayments.loadtest;
+
+import com.securepayments.dto.ActivityReportView;
+import com.securepayments.model.PaymentTransaction;
+import com.securepayments.model.User;
+import com.securepayments.repository.TransactionRepository;
+import com.securepayments.repository.UserRepository;
+import com.securepayments.service.AIService;
+import com.securepayments.service.ActivityService;
+import com.securepayments.service.BlockchainService;
+import com.securepayments.service.PaymentIntakeService;
+import com.securepayments.service.PaymentQueueFullException;
+import com.securepayments.service.PaymentRequest;
+import com.securepayments.service.StockService;
+import com.securepayments.service.TransactionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load-generation driver for the 'loadtest' profile.
+ *
+ * Creates N users, fires concurrent payments where most traffic hits a small set
+ * of hot accounts, and mines on a fixed interval. Prints throughput, latency
+ * percentiles, deadlock/retry counts and verifies that no money was created or
+ * destroyed (fees are burned, so they are counted on the outgoing side).
+ *
+ * Opt-in so the regular build stays fast:
+ *   mvn test -Dtest=PaymentLoadTest -Dloadtest=true [-Dloadtest.payments=5000 ...]
+ * Add -Dpayments.intake.mode=queued to measure the group-commit intake instead.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class PaymentLoadTest {
+
+    // --- Tunables (system properties) ---
+    private static final int USERS = Integer.getInteger("loadtest.users", 50);
+    private static final int PAYMENTS = Integer.getInteger("loadtest.payments", 2000);
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 16);
+    private static final int HOT_ACCOUNTS = Integer.getInteger("loadtest.hotAccounts", 5);
+    private static final int HOT_PERCENT = Integer.getInteger("loadtest.hotPercent", 80);
+    private static final int MINE_INTERVAL_MS = Integer.getInteger("loadtest.mineIntervalMs", 250);
+    private static final int MAX_RETRIES = Integer.getInteger("loadtest.maxRetries", 5);
+    private static final int UPSTREAM_EVERY = Integer.getInteger("loadtest.upstreamEvery", 50);
+
+    private static final BigDecimal STARTING_BALANCE = new BigDecimal("10000.00");
+    private static final BigDecimal FEE = new BigDecimal("0.01");
+
+    private static StubUpstreams stubs;
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) throws IOException {
+        stubs = new StubUpstreams();
+        registry.add("stock.api.base-url", stubs::stockBaseUrl);
+        registry.add("gemini.api.base-url", stubs::geminiBaseUrl);
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        if (stubs != null) {
+            stubs.close();
+        }
+    }
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private BlockchainService blockchainService;
+    @Autowired private ActivityService activityService;
+    @Autowired private PaymentIntakeService paymentIntakeService;
+    @Autowired private StockService stockService;
+    @Autowired private AIService aiService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private MeterRegistry meterRegistry;
+
+    // --- Counters collected by the driver ---
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong deadlocks = new AtomicLong();
+    private final AtomicLong blocksMined = new AtomicLong();
+    private final AtomicLong miningConflicts = new AtomicLong();
+
+    @Test
+    void concurrentPaymentsWithHotAccounts() throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(transactionService.createUser("load-user-" + i, "load" + i + "@example.test", STARTING_BALANCE).getId());
+        }
+        BigDecimal initialTotal = STARTING_BALANCE.multiply(BigDecimal.valueOf(USERS));
+
+        ScheduledExecutorService miner = Executors.newSingleThreadScheduledExecutor();
+        miner.scheduleWithFixedDelay(this::mineOnce, MINE_INTERVAL_MS, MINE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (int i = 0; i < PAYMENTS; i++) {
+            final int n = i;
+            clients.submit(() -> {
+                pay(userIds);
+                if (UPSTREAM_EVERY > 0 && n % UPSTREAM_EVERY == 0) {
+                    callUpstreams(userIds);
+                }
+            });
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(10, TimeUnit.MINUTES), "Load run did not finish in time");
+        long elapsedNanos = System.nanoTime() - start;
+
+        miner.shutdown();
+        miner.awaitTermination(1, TimeUnit.MINUTES);
+        // Drain whatever is still pending so the final check covers settled balances
+        while (blockchainService.minePendingTransactions() != null) {
+            blocksMined.incrementAndGet();
+        }
+
+        BigDecimal balances = userRepository.findAll().stream()
+                .map(User::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<PaymentTransaction> ledger = transactionRepository.findAll();
+        BigDecimal feesBurned = ledger.stream()
+                .map(PaymentTransaction::getNetworkFee)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal stillPending = ledger.stream()
+                .filter(tx -> tx.getBlock() == null)
+                .map(PaymentTransaction::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        printReport(elapsedNanos, initialTotal, balances, feesBurned, stillPending, ledger.size());
+
+        assertEquals(0, initialTotal.compareTo(balances.add(feesBurned).add(stillPending)),
+                "Balance conservation violated");
+        assertEquals(succeeded.get(), ledger.size(), "Every acknowledged payment must be in the ledger");
+        assertEquals(0, transactionRepository.countByBlockIsNull(), "Pending set should be fully mined");
+        assertEquals(List.of(), blockchainService.validateChain(), "Mined chain should validate");
+
+        ActivityReportView activity = activityService.verify(false);
+        System.out.println("activity check: " + activity);
+        assertEquals(0, activity.usersMismatched() + activity.daysMismatched(),
+                "Incremental activity aggregates should match the ledger");
+    }
+
+    private void pay(List<Long> userIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Long senderId = pickAccount(userIds, random);
+        Long receiverId;
+        do {
+            receiverId = pickAccount(userIds, random);
+        } while (receiverId.equals(senderId));
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 50));
+
+        long start = System.nanoTime();
+        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+            try {
+                paymentIntakeService.process(new PaymentRequest(senderId, receiverId, amount, FEE, null));
+                latenciesNanos.add(System.nanoTime() - start);
+                succeeded.incrementAndGet();
+                return;
+            } catch (ConcurrencyFailureException e) {
+                if (isDeadlock(e)) {
+                    deadlocks.incrementAndGet();
+                }
+                if (attempt < MAX_RETRIES) {
+                    retries.incrementAndGet();
+                }
+            } catch (PaymentQueueFullException e) {
+                if (attempt < MAX_RETRIES) {
+                    retries.incrementAndGet();
+                }
+            } catch (IllegalStateException e) {
+                // Insufficient funds: a legitimate business rejection, not an error
+                rejected.incrementAndGet();
+                return;
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                return;
+            }
+        }
+        failed.incrementAndGet();
+    }
+
+    /** Skewed pick: HOT_PERCENT of picks land on the first HOT_ACCOUNTS users. */
+    private static Long pickAccount(List<Long> userIds, ThreadLocalRandom random) {
+        int hot = Math.min(HOT_ACCOUNTS, userIds.size());
+        if (hot > 1 && random.nextInt(100) < HOT_PERCENT) {
+            return userIds.get(random.nextInt(hot));
+        }
+        return userIds.get(random.nextInt(userIds.size()));
+    }
+
+    private void mineOnce() {
+        try {
+            if (blockchainService.minePendingTransactions() != null) {
+                blocksMined.incrementAndGet();
+            }
+        } catch (ConcurrencyFailureException e) {
+            miningConflicts.incrementAndGet();
+            if (isDeadlock(e)) {
+                deadlocks.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            miningConflicts.incrementAndGet();
+        }
+    }
+
+    private void callUpstreams(List<Long> userIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        stockService.getLatestStockPrice("SYM" + random.nextInt(20));
+        aiService.analyzeTransaction(userIds.get(0), userIds.get(1), BigDecimal.TEN, FEE);
+    }
+
+    private static boolean isDeadlock(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof DeadlockLoserDataAccessException) {
+                return true;
+            }
+            if (t.getMessage() != null && t.getMessage().toLowerCase().contains("deadlock")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void printReport(long elapsedNanos, BigDecimal initialTotal, BigDecimal balances,
+                             BigDecimal feesBurned, BigDecimal stillPending, int ledgerSize) {
+        List<Long> sorted = new ArrayList<>(latenciesNanos);
+        Collections.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        Timer lockWait = meterRegistry.find("payments.lock.wait").timer();
+
+        System.out.println("==================== PAYMENT LOAD TEST ====================");
+        System.out.printf("users=%d payments=%d threads=%d hot=%d (%d%%) mineEvery=%dms intake=%s%n",
+                USERS, PAYMENTS, THREADS, HOT_ACCOUNTS, HOT_PERCENT, MINE_INTERVAL_MS,
+                paymentIntakeService.isQueued() ? "queued" : "direct");
+        System.out.printf("elapsed=%.2fs throughput=%.1f tx/s%n", seconds, succeeded.get() / seconds);
+        System.out.printf("succeeded=%d rejected(insufficient)=%d failed=%d retries=%d deadlocks=%d%n",
+                succeeded.get(), rejected.get(), failed.get(), retries.get(), deadlocks.get());
+        System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+                percentileMillis(sorted, 50), percentileMillis(sorted, 90),
+                percentileMillis(sorted, 99), percentileMillis(sorted, 100));
+        if (lockWait != null) {
+            System.out.printf("lock wait ms: mean=%.2f max=%.2f%n",
+                    lockWait.mean(TimeUnit.MILLISECONDS), lockWait.max(TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("blocks mined=%d mining conflicts=%d ledger rows=%d%n",
+                blocksMined.get(), miningConflicts.get(), ledgerSize);
+        System.out.printf("conservation: initial=%s balances=%s fees=%s pending=%s%n",
+                initialTotal, balances, feesBurned, stillPending);
+        System.out.println("===========================================================");
+    }
+
+    private static double percentileMillis(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1e6;
+    }
+}
@@ -0,0 +1,81 @@
+package com.securepayments.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local HTTP stand-ins for Alpha Vantage and Gemini, so load runs never touch
+ * the real APIs (or their quotas). Each stub adds a small random delay to
+ * mimic upstream latency.
+ */
+public class StubUpstreams implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    public StubUpstreams() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+
+        // Alpha Vantage: every function is served from /query
+        server.createContext("/query", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            String body;
+            if (query != null && query.contains("function=GLOBAL_QUOTE")) {
+                String price = String.format("%.4f", 100 + ThreadLocalRandom.current().nextDouble(50));
+                body = "{\"Global Quote\":{\"01. symbol\":\"STUB\",\"05. price\":\"" + price + "\"}}";
+            } else if (query != null && query.contains("function=SYMBOL_SEARCH")) {
+                body = "{\"bestMatches\":[{\"1. symbol\":\"STUB\",\"2. name\":\"Stub Corp\"}]}";
+            } else {
+                body = "{\"Time Series (Daily)\":{}}";
+            }
+            respond(exchange, body, 20);
+        });
+
+        // Gemini: generateContent wraps the structured answer in candidates[0]
+        server.createContext("/gemini", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            String body = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":"
+                    + "\"{\\\"summary\\\":\\\"Stubbed analysis.\\\",\\\"risk\\\":\\\"LOW\\\"}\"}]}}]}";
+            respond(exchange, body, 80);
+        });
+
+        server.start();
+    }
+
+    public String stockBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/query?";
+    }
+
+    public String geminiBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/gemini?key=";
+    }
+
+    private static void respond(HttpExchange exchange, String body, int maxDelayMillis) throws IOException {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(maxDelayMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,101 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.UserView;
+import com.securepayments.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outside a transaction AfterCommit runs immediately, so invalidations here take effect
+ * at the call, exactly as they would right after a commit.
+ */
+class AccountCacheTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private AccountCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AccountCache(userRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+    }
+
+    @Test
+    void readsThroughOnceAndReloadsAfterInvalidation() {
+        when(userRepository.findViewById(1L)).thenReturn(Optional.of(user(1L, "10")), Optional.of(user(1L, "7")));
+
+        assertEquals(new BigDecimal("10"), cache.findById(1L).orElseThrow().balance());
+        assertEquals(new BigDecimal("10"), cache.findById(1L).orElseThrow().balance());
+        verify(userRepository, times(1)).findViewById(1L);
+
+        cache.invalidateAfterCommit(List.of(1L));
+        assertEquals(new BigDecimal("7"), cache.findById(1L).orElseThrow().balance());
+        verify(userRepository, times(2)).findViewById(1L);
+    }
+
+    @Test
+    void slowLoadDoesNotReinstallABalanceInvalidatedMeanwhile() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch commitDone = new CountDownLatch(1);
+        when(userRepository.findViewById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            commitDone.await(5, TimeUnit.SECONDS);
+            return Optional.of(user(1L, "10")); // read before the commit below
+        }).thenReturn(Optional.of(user(1L, "4")));
+
+        CompletableFuture<Optional<UserView>> slowReader = CompletableFuture.supplyAsync(() -> cache.findById(1L));
+        loading.await(5, TimeUnit.SECONDS);
+        cache.invalidateAfterCommit(List.of(1L)); // a debit commits while the reader is loading
+        commitDone.countDown();
+
+        assertEquals(new BigDecimal("10"), slowReader.get(5, TimeUnit.SECONDS).orElseThrow().balance());
+        assertEquals(new BigDecimal("4"), cache.findById(1L).orElseThrow().balance()); // not the stale 10
+    }
+
+    @Test
+    void listReloadsOnlyInvalidatedAccounts() {
+        when(userRepository.findAllViews()).thenReturn(List.of(user(1L, "1"), user(2L, "2"), user(3L, "3")));
+        when(userRepository.findViewsByIdIn(anyCollection())).thenReturn(List.of(user(2L, "20")));
+
+        assertEquals(3, cache.findAll().size());
+        cache.invalidateAfterCommit(List.of(2L));
+        List<UserView> users = cache.findAll();
+
+        assertEquals(List.of(1L, 2L, 3L), users.stream().map(UserView::id).toList());
+        assertEquals(new BigDecimal("20"), users.get(1).balance());
+        verify(userRepository, times(1)).findAllViews();
+        verify(userRepository).findViewsByIdIn(List.of(2L));
+    }
+
+    @Test
+    void staysWithinItsBound() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 5);
+        for (long id = 1; id <= 20; id++) {
+            when(userRepository.findViewById(id)).thenReturn(Optional.of(user(id, "1")));
+            cache.findById(id);
+        }
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(cache, "entries")).size() <= 5);
+    }
+
+    private static UserView user(Long id, String balance) {
+        return new UserView(id, "user" + id, "user" + id + "@example.test", new BigDecimal(balance));
+    }
+}
@@ -0,0 +1,119 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.ActivityReportView;
+import com.securepayments.dto.UserActivityView;
+import com.securepayments.model.User;
+import com.securepayments.repository.UserActivityRepository;
+import com.securepayments.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityServiceTest extends ServiceIntegrationTest {
+
+    @Autowired private ActivityService activityService;
+    @Autowired private UserActivityRepository activityRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Test
+    void tracksSentOnAcceptanceAndReceivedOnceMined() {
+        User sender = newUser("100");
+        User receiver = newUser("0");
+
+        pay(sender, receiver, "5.00", "0.10");
+        assertTotals(activityService.getActivity(sender.getId(), 1), 1, "5.00", "0.10", 0, "0");
+        assertTotals(activityService.getActivity(receiver.getId(), 1), 0, "0", "0", 0, "0");
+
+        mine();
+        assertTotals(activityService.getActivity(receiver.getId(), 1), 0, "0", "0", 1, "5.00");
+        assertEquals(1, activityService.getActivity(receiver.getId(), 1).daily().size());
+        assertEquals(0, activityService.verify(false).usersMismatched());
+    }
+
+    @Test
+    void repairRestoresDriftedAndMissingRows() {
+        User sender = newUser("100");
+        User receiver = newUser("0");
+        pay(sender, receiver, "4.00", "0.01");
+        mine();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            activityRepository.addDeltas(sender.getId(), 3, new BigDecimal("9.00"), BigDecimal.ZERO, 0, BigDecimal.ZERO);
+            activityRepository.deleteById(receiver.getId());
+        });
+
+        ActivityReportView report = activityService.verify(true);
+        assertEquals(2, report.usersMismatched());
+        assertTrue(report.repaired());
+
+        assertEquals(0, activityService.verify(false).usersMismatched());
+        assertTotals(activityService.getActivity(sender.getId(), 1), 1, "4.00", "0.01", 0, "0");
+        assertTotals(activityService.getActivity(receiver.getId(), 1), 0, "0", "0", 1, "4.00");
+    }
+
+    @Test
+    void repairWaitsForTheUserLocksItCorrects() throws Exception {
+        User user = newUser("100");
+        pay(user, newUser("0"), "1.00", "0.01");
+        transactionTemplate.executeWithoutResult(status -> activityRepository.deleteById(user.getId()));
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            userRepository.findLockedById(user.getId());
+            locked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<ActivityReportView> repair = CompletableFuture.supplyAsync(() -> activityService.verify(true));
+        Thread.sleep(300);
+        assertFalse(repair.isDone(), "repair must not write a user's aggregates while the user is locked");
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertTrue(repair.get(5, TimeUnit.SECONDS).repaired());
+        assertEquals(0, activityService.verify(false).usersMismatched());
+    }
+
+    @Test
+    void onDemandRunsAreSpacedOut() {
+        Object minInterval = ReflectionTestUtils.getField(activityService, "minIntervalMs");
+        try {
+            ReflectionTestUtils.setField(activityService, "minIntervalMs", 0L);
+            activityService.requestVerify(false);
+
+            ReflectionTestUtils.setField(activityService, "minIntervalMs", 60_000L);
+            RateLimitExceededException refused = assertThrows(RateLimitExceededException.class,
+                    () -> activityService.requestVerify(false));
+            assertTrue(refused.getRetryAfterSeconds() > 0);
+        } finally {
+            ReflectionTestUtils.setField(activityService, "minIntervalMs", minInterval);
+        }
+    }
+
+    private static void assertTotals(UserActivityView view, long sentCount, String sentTotal, String feesPaid,
+                                     long receivedCount, String receivedTotal) {
+        assertEquals(sentCount, view.sentCount());
+        assertEquals(0, new BigDecimal(sentTotal).compareTo(view.sentTotal()));
+        assertEquals(0, new BigDecimal(feesPaid).compareTo(view.feesPaid()));
+        assertEquals(receivedCount, view.receivedCount());
+        assertEquals(0, new BigDecimal(receivedTotal).compareTo(view.receivedTotal()));
+    }
+}
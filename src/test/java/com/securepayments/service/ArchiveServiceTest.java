@@ -0,0 +1,143 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.ArchiveReportView;
+import com.securepayments.dto.BlockView;
+import com.securepayments.dto.TransactionView;
+import com.securepayments.model.Block;
+import com.securepayments.model.PaymentTransaction;
+import com.securepayments.model.User;
+import com.securepayments.repository.ArchivedTransactionRepository;
+import com.securepayments.repository.BlockRepository;
+import com.securepayments.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ArchiveServiceTest extends ServiceIntegrationTest {
+
+    @Autowired private ArchiveService archiveService;
+    @Autowired private ActivityService activityService;
+    @Autowired private TransactionRepository transactionRepository;
+
+    @Test
+    void movesOldBlocksAndKeepsThemReachableOnRequest() {
+        User sender = newUser("100");
+        User receiver = newUser("0");
+        List<PaymentTransaction> payments = new ArrayList<>();
+        List<Integer> blocks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            payments.add(pay(sender, receiver, "1.00", "0.01"));
+            Block block = mine();
+            blocks.add(block.getBlockIndex());
+        }
+
+        ArchiveReportView report = archiveAllOldEnough();
+
+        // depth-blocks=3: everything up to tip - 3 moves, the newest three blocks stay hot
+        int tip = blocks.get(4);
+        assertEquals(tip - 3, report.toBlock());
+        assertTrue(report.transactionsArchived() >= 2);
+        PaymentTransaction archived = payments.get(0);
+        PaymentTransaction recent = payments.get(4);
+        assertFalse(transactionRepository.existsById(archived.getId()));
+
+        // Default reads stay on the hot table
+        assertFalse(ids(transactionService.getAll()).contains(archived.getId()));
+        assertTrue(ids(transactionService.getAll()).contains(recent.getId()));
+        List<BlockView> recentChain = blockchainService.getChain();
+        assertEquals(tip - 2, recentChain.get(0).blockIndex());
+        assertEquals(tip, recentChain.get(recentChain.size() - 1).blockIndex());
+
+        // An explicit block range reaches into the archive
+        int archivedBlock = blocks.get(0);
+        assertTrue(ids(transactionService.getAll(archivedBlock, archivedBlock)).contains(archived.getId()));
+        List<BlockView> slice = blockchainService.getChain(archivedBlock, archivedBlock);
+        assertEquals(1, slice.size());
+        TransactionView archivedView = slice.get(0).transactions().stream()
+                .filter(tx -> tx.id().equals(archived.getId())).findFirst().orElseThrow();
+        // The hash is assigned when mined, so look it up from the archived copy
+        assertEquals(archived.getId(), transactionService.findByHash(archivedView.transactionHash()).orElseThrow().id());
+
+        assertEquals(List.of(), blockchainService.validateChain());
+        assertEquals(0, activityService.verify(false).usersMismatched());
+    }
+
+    @Test
+    void userHistorySpansBothStores() {
+        User sender = newUser("100");
+        User receiver = newUser("0");
+        PaymentTransaction archived = pay(sender, receiver, "1.00", "0.01");
+        mine();
+        User other = newUser("10");
+        for (int i = 0; i < 3; i++) {
+            pay(other, newUser("0"), "1.00", "0.01"); // only non-empty mempools make a block
+            mine();
+        }
+        archiveAllOldEnough();
+        assertFalse(transactionRepository.existsById(archived.getId()));
+        PaymentTransaction pending = pay(receiver, sender, "0.50", "0.01");
+
+        List<Long> senderHistory = ids(transactionService.getHistory(sender.getId()));
+        assertEquals(List.of(archived.getId(), pending.getId()), senderHistory);
+        assertEquals(senderHistory, ids(transactionService.getHistory(receiver.getId())));
+        assertEquals(List.of(), ids(transactionService.getHistory(newUser("0").getId())));
+    }
+
+    @Test
+    void blocksNewerThanMinAgeStayHot() {
+        pay(newUser("10"), newUser("0"), "1.00", "0.01");
+        mine();
+        for (int i = 0; i < 3; i++) {
+            mine();
+        }
+        // min-age-hours=24 and every block here is seconds old
+        ArchiveReportView report = archiveService.archive();
+        assertEquals(0, report.transactionsArchived());
+    }
+
+    @Test
+    void refusesRetentionThatUndercutsOtherReaders() {
+        ArchiveService tooShallow = unwiredArchiveService(2, 24, 2, 86_400);
+        assertThrows(IllegalStateException.class, tooShallow::checkRetention);
+
+        ArchiveService tooYoung = unwiredArchiveService(3, 1, 2, 86_400);
+        assertThrows(IllegalStateException.class, tooYoung::checkRetention);
+
+        unwiredArchiveService(3, 24, 2, 86_400).checkRetention();
+    }
+
+    private ArchiveReportView archiveAllOldEnough() {
+        Object minAge = ReflectionTestUtils.getField(archiveService, "minAgeHours");
+        try {
+            ReflectionTestUtils.setField(archiveService, "minAgeHours", -1L); // everything mined so far counts as old
+            return archiveService.archive();
+        } finally {
+            ReflectionTestUtils.setField(archiveService, "minAgeHours", minAge);
+        }
+    }
+
+    private static ArchiveService unwiredArchiveService(int depthBlocks, long minAgeHours, int feeBlockWindow, long ttlSeconds) {
+        ArchiveService service = new ArchiveService(mock(TransactionRepository.class), mock(ArchivedTransactionRepository.class),
+                mock(BlockRepository.class), mock(TransactionTemplate.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "depthBlocks", depthBlocks);
+        ReflectionTestUtils.setField(service, "minAgeHours", minAgeHours);
+        ReflectionTestUtils.setField(service, "feeBlockWindow", feeBlockWindow);
+        ReflectionTestUtils.setField(service, "idempotencyTtlSeconds", ttlSeconds);
+        return service;
+    }
+
+    private static List<Long> ids(List<TransactionView> views) {
+        return views.stream().map(TransactionView::id).toList();
+    }
+}
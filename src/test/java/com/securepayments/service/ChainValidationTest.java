@@ -0,0 +1,64 @@
+package com.securepayments.service;
+
+import com.securepayments.model.Block;
+import com.securepayments.model.User;
+import com.securepayments.repository.BlockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChainValidationTest extends ServiceIntegrationTest {
+
+    @Autowired private BlockRepository blockRepository;
+
+    @Test
+    void changedDifficultySettingsOnlyApplyAfterRulesSinceBlock() {
+        User a = newUser("1000");
+        User b = newUser("1000");
+        for (int i = 0; i < 12; i++) { // crosses a retarget boundary (interval 10)
+            pay(a, b, "1.00", "0.01");
+            mine();
+        }
+        assertEquals(List.of(), blockchainService.validateChain());
+
+        long target = (long) ReflectionTestUtils.getField(blockchainService, "targetBlockIntervalMs");
+        try {
+            // Blocks mined in milliseconds would call for more bits under a much slower target
+            ReflectionTestUtils.setField(blockchainService, "targetBlockIntervalMs", 1L);
+            assertFalse(blockchainService.validateChain().isEmpty());
+
+            int tip = blockRepository.findTopByOrderByBlockIndexDesc().getBlockIndex();
+            ReflectionTestUtils.setField(blockchainService, "rulesSinceBlock", tip);
+            assertEquals(List.of(), blockchainService.validateChain());
+        } finally {
+            ReflectionTestUtils.setField(blockchainService, "targetBlockIntervalMs", target);
+            ReflectionTestUtils.setField(blockchainService, "rulesSinceBlock", 0);
+        }
+    }
+
+    @Test
+    void tamperedProofOfWorkIsReported() {
+        User a = newUser("100");
+        User b = newUser("100");
+        pay(a, b, "1.00", "0.01");
+        Block block = mine();
+
+        String hash = block.getHash();
+        try {
+            block.setHash("f" + hash.substring(1)); // no leading zero bits any more
+            blockRepository.save(block);
+            assertTrue(blockchainService.validateChain().stream()
+                    .anyMatch(e -> e.startsWith("Block " + block.getBlockIndex() + ": hash does not meet")));
+        } finally {
+            block.setHash(hash);
+            blockRepository.save(block);
+        }
+        assertEquals(List.of(), blockchainService.validateChain());
+    }
+}
@@ -0,0 +1,87 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.FeeEstimateView;
+import com.securepayments.model.Block;
+import com.securepayments.repository.BlockRepository;
+import com.securepayments.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The hooks run immediately here (no transaction), as they would right after a commit.
+ */
+class FeeEstimatorServiceTest {
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final BlockRepository blockRepository = mock(BlockRepository.class);
+    private FeeEstimatorService estimator;
+
+    @BeforeEach
+    void setUp() {
+        estimator = new FeeEstimatorService(transactionRepository, blockRepository);
+        ReflectionTestUtils.setField(estimator, "blockWindow", 2);
+        ReflectionTestUtils.setField(estimator, "defaultFee", new BigDecimal("0.01"));
+    }
+
+    @Test
+    void emptyChainSuggestsTheDefaultFee() {
+        when(transactionRepository.findPendingFees()).thenReturn(List.of());
+        estimator.start();
+
+        FeeEstimateView estimate = estimator.estimate();
+        assertEquals(new BigDecimal("0.01"), estimate.slow());
+        assertEquals(new BigDecimal("0.01"), estimate.fast());
+        assertEquals(0, estimate.sampledBlocks());
+    }
+
+    @Test
+    void seedsFromTheLastBlocksOfTheWindowAndTheMempool() {
+        when(transactionRepository.findPendingFees()).thenReturn(fees("0.50"));
+        when(blockRepository.findTopByOrderByBlockIndexDesc()).thenReturn(new Block(3, "x"));
+        when(transactionRepository.findFeesByBlockIndex(2)).thenReturn(fees("0.01", "0.02"));
+        when(transactionRepository.findFeesByBlockIndex(3)).thenReturn(fees("0.03", "0.04"));
+        estimator.start();
+        estimator.start(); // a restarted context must not count the database twice
+
+        FeeEstimateView estimate = estimator.estimate();
+        assertEquals(2, estimate.sampledBlocks());
+        assertEquals(4, estimate.sampledTransactions());
+        assertEquals(1, estimate.pendingTransactions());
+        assertEquals(new BigDecimal("0.01"), estimate.slow());   // p25 of 0.01..0.04
+        assertEquals(new BigDecimal("0.02"), estimate.normal()); // p50
+        assertEquals(new BigDecimal("0.50"), estimate.fast());   // outbids the pending p75
+    }
+
+    @Test
+    void minedBlocksSlideTheWindowAndLeaveTheMempool() {
+        when(transactionRepository.findPendingFees()).thenReturn(List.of());
+        estimator.start();
+
+        estimator.pendingAddedAfterCommit(fees("1.00", "1.00"));
+        estimator.blockMinedAfterCommit(fees("1.00", "1.00"));
+        estimator.blockMinedAfterCommit(fees("0.10"));
+        estimator.blockMinedAfterCommit(fees("0.20")); // pushes the 1.00 block out of a 2-block window
+
+        FeeEstimateView estimate = estimator.estimate();
+        assertEquals(0, estimate.pendingTransactions());
+        assertEquals(2, estimate.sampledBlocks());
+        assertEquals(new BigDecimal("0.20"), estimate.fast());
+
+        estimator.pendingAddedAfterCommit(fees("0.30"));
+        estimator.pendingRemovedAfterCommit(fees("0.30")); // cancelled by a user deletion
+        assertEquals(0, estimator.estimate().pendingTransactions());
+    }
+
+    private static List<BigDecimal> fees(String... values) {
+        return Stream.of(values).map(BigDecimal::new).toList();
+    }
+}
@@ -0,0 +1,106 @@
+package com.securepayments.service;
+
+import com.securepayments.model.PaymentTransaction;
+import com.securepayments.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyServiceTest extends ServiceIntegrationTest {
+
+    private static final int CALLERS = 8;
+
+    @Autowired private IdempotencyService idempotencyService;
+
+    @Test
+    void concurrentSubmissionsWithOneKeyExecuteOnce() throws Exception {
+        User sender = newUser("100");
+        User receiver = newUser("0");
+        String key = UUID.randomUUID().toString();
+        PaymentRequest request = request(sender, receiver, "10.00", key);
+        AtomicInteger executions = new AtomicInteger();
+
+        CyclicBarrier start = new CyclicBarrier(CALLERS);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        List<Future<PaymentTransaction>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> {
+                start.await();
+                return idempotencyService.execute(key, request, () -> {
+                    executions.incrementAndGet();
+                    return create(request);
+                });
+            }));
+        }
+        callers.shutdown();
+        callers.awaitTermination(30, TimeUnit.SECONDS);
+
+        Long id = results.get(0).get().getId();
+        for (Future<PaymentTransaction> result : results) {
+            assertEquals(id, result.get().getId());
+        }
+        assertEquals(1, executions.get());
+        assertEquals(0, new BigDecimal("89.99").compareTo(balanceOf(sender)));
+    }
+
+    @Test
+    void loserOfTheUniqueKeyRaceGetsTheWinningRow() {
+        User sender = newUser("100");
+        User receiver = newUser("0");
+        String key = UUID.randomUUID().toString();
+        PaymentRequest request = request(sender, receiver, "10.00", key);
+
+        // Another node commits the key between our lookup and our insert
+        PaymentTransaction result = idempotencyService.execute(key, request, () -> {
+            PaymentTransaction winner = create(request);
+            assertEquals(key, winner.getIdempotencyKey());
+            return create(request); // violates the unique key and rolls back
+        });
+
+        assertEquals(result.getId(), transactionService.findByIdempotencyKey(key).orElseThrow().getId());
+        assertEquals(0, new BigDecimal("89.99").compareTo(balanceOf(sender)));
+    }
+
+    @Test
+    void reusingAKeyForADifferentPaymentIsRefused() {
+        User sender = newUser("100");
+        User receiver = newUser("0");
+        String key = UUID.randomUUID().toString();
+        PaymentRequest original = request(sender, receiver, "10", key);
+        idempotencyService.execute(key, original, () -> create(original));
+
+        // Same payment at another scale is a replay; another amount is not
+        assertEquals(key, idempotencyService.execute(key, request(sender, receiver, "10.000", key),
+                () -> { throw new AssertionError("replay must not execute"); }).getIdempotencyKey());
+        assertThrows(IdempotencyKeyReusedException.class, () ->
+                idempotencyService.execute(key, request(sender, receiver, "11.00", key), () -> create(original)));
+
+        // Keys that are only in the database (recorded elsewhere, or evicted) are checked too
+        String recordedKey = UUID.randomUUID().toString();
+        create(request(sender, receiver, "5.00", recordedKey));
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotencyService.execute(recordedKey,
+                request(receiver, sender, "5.00", recordedKey), () -> { throw new AssertionError(); }));
+    }
+
+    private static PaymentRequest request(User sender, User receiver, String amount, String key) {
+        return new PaymentRequest(sender.getId(), receiver.getId(), new BigDecimal(amount), new BigDecimal("0.01"), key);
+    }
+
+    private PaymentTransaction create(PaymentRequest r) {
+        return transactionService.createTransaction(r.senderId(), r.receiverId(), r.amount(), r.networkFee(),
+                r.idempotencyKey());
+    }
+}
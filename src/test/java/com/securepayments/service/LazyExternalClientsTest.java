@@ -0,0 +1,20 @@
+package com.securepayments.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class LazyExternalClientsTest extends ServiceIntegrationTest {
+
+    @Autowired private ConfigurableApplicationContext context;
+
+    // Nothing in this context calls the stock or AI endpoints, so their clients must not exist
+    @Test
+    void externalClientsAreNotCreatedAtStartup() {
+        for (String bean : new String[] {"stockService", "AIService", "restTemplate"}) {
+            assertFalse(context.getBeanFactory().containsSingleton(bean), bean + " was created eagerly");
+        }
+    }
+}
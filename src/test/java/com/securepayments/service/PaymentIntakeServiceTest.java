@@ -0,0 +1,95 @@
+package com.securepayments.service;
+
+import com.securepayments.model.PaymentTransaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PaymentIntakeServiceTest {
+
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final CountDownLatch releaseCommit = new CountDownLatch(1);
+    private PaymentIntakeService intake;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        releaseCommit.countDown();
+        if (intake != null) {
+            intake.stop();
+        }
+    }
+
+    @Test
+    void directModeValidatesLikeQueuedMode() {
+        intake = intake("direct");
+        assertThrows(IllegalArgumentException.class, () -> intake.process(payment(1L, 1L, "5")));
+        assertThrows(IllegalArgumentException.class, () -> intake.process(payment(1L, 2L, "0")));
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void callerGets503WhenTheCommitOutlastsTheResultTimeout() {
+        blockCommits();
+        intake = intake("queued");
+        assertThrows(PaymentIntakeUnavailableException.class, () -> intake.process(payment(1L, 2L, "5")));
+    }
+
+    @Test
+    void stopFailsInFlightAndQueuedPayments() throws Exception {
+        blockCommits();
+        intake = intake("queued");
+        CompletableFuture<PaymentTransaction> inFlight = intake.submit(payment(1L, 2L, "5"));
+        Thread.sleep(100); // let the writer take it and block in the commit
+        CompletableFuture<PaymentTransaction> queued = intake.submit(payment(1L, 2L, "6"));
+
+        // Interrupting the writer is what stop() does once its grace period is over
+        Thread writer = (Thread) ReflectionTestUtils.getField(intake, "writer");
+        writer.interrupt();
+        writer.join(5_000);
+
+        assertTrue(!writer.isAlive(), "writer must exit instead of spinning");
+        for (CompletableFuture<PaymentTransaction> f : new CompletableFuture[] {inFlight, queued}) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(PaymentIntakeUnavailableException.class, e.getCause());
+        }
+        assertThrows(PaymentQueueFullException.class, () -> intake.submit(payment(1L, 2L, "7")));
+    }
+
+    private void blockCommits() {
+        when(transactionService.createTransactionBatch(any())).thenAnswer(invocation -> {
+            releaseCommit.await(); // interrupted by stop(), like a JDBC call would be
+            throw new IllegalStateException("released");
+        });
+    }
+
+    private PaymentIntakeService intake(String mode) {
+        PaymentIntakeService service = new PaymentIntakeService(transactionService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "mode", mode);
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "batchSize", 1);
+        ReflectionTestUtils.setField(service, "batchWindowMs", 1L);
+        ReflectionTestUtils.setField(service, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(service, "resultTimeoutMs", 200L);
+        service.start();
+        return service;
+    }
+
+    private static PaymentRequest payment(Long sender, Long receiver, String amount) {
+        return new PaymentRequest(sender, receiver, new BigDecimal(amount), new BigDecimal("0.01"), null);
+    }
+}
@@ -0,0 +1,123 @@
+package com.securepayments.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterServiceTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+    private RateLimiterService limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new RateLimiterService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "maxKeys", 2);
+        ReflectionTestUtils.setField(limiter, "paymentsCapacity", 2);
+        ReflectionTestUtils.setField(limiter, "paymentsPerMinute", 60.0); // one token per second
+        ReflectionTestUtils.setField(limiter, "nanoClock", (LongSupplier) now::get);
+    }
+
+    @Test
+    void newCallersNeverResetBucketsThatAreStillRefilling() {
+        drain("ip:a:user:1");
+        drain("ip:b:user:2");
+
+        // The table is full of active buckets: newcomers share the overflow bucket instead
+        limiter.acquire(RateLimiterService.PAYMENTS, "ip:c:user:3");
+        limiter.acquire(RateLimiterService.PAYMENTS, "ip:d:user:4");
+        assertThrows(RateLimitExceededException.class,
+                () -> limiter.acquire(RateLimiterService.PAYMENTS, "ip:e:user:5"));
+
+        assertThrows(RateLimitExceededException.class,
+                () -> limiter.acquire(RateLimiterService.PAYMENTS, "ip:a:user:1"));
+        assertThrows(RateLimitExceededException.class,
+                () -> limiter.acquire(RateLimiterService.PAYMENTS, "ip:b:user:2"));
+        assertEquals(2, buckets().size());
+    }
+
+    @Test
+    void sweepDropsOnlyRefilledBuckets() {
+        limiter.acquire(RateLimiterService.PAYMENTS, "ip:a:user:1");
+        limiter.acquire(RateLimiterService.PAYMENTS, "ip:b:user:2");
+        now.addAndGet(2 * SECOND); // both refilled
+        limiter.acquire(RateLimiterService.PAYMENTS, "ip:a:user:1"); // a is refilling again
+
+        limiter.evictIdle();
+        assertEquals(1, buckets().size());
+        assertTrue(buckets().containsKey("payments|ip:a:user:1"));
+
+        // The freed slot goes to a new caller instead of the overflow bucket
+        drain("ip:c:user:3");
+        assertTrue(buckets().containsKey("payments|ip:c:user:3"));
+    }
+
+    @Test
+    void concurrentCallersShareOneBucketPerKey() throws Exception {
+        ReflectionTestUtils.setField(limiter, "paymentsCapacity", 100);
+        ReflectionTestUtils.setField(limiter, "paymentsPerMinute", 0.001); // no refill during the test
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> callers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                callers.add(pool.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        try {
+                            limiter.acquire(RateLimiterService.PAYMENTS, "ip:a:user:1");
+                            granted.incrementAndGet();
+                        } catch (RateLimitExceededException e) {
+                            // expected once the 100 tokens are gone
+                        }
+                    }
+                }));
+            }
+            for (Future<?> caller : callers) {
+                caller.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(100, granted.get());
+    }
+
+    @Test
+    void callersAreLimitedIndependently() {
+        drain("ip:a:user:1");
+        assertDoesNotThrow(() -> limiter.acquire(RateLimiterService.PAYMENTS, "ip:b:user:1"));
+
+        now.addAndGet(SECOND);
+        assertDoesNotThrow(() -> limiter.acquire(RateLimiterService.PAYMENTS, "ip:a:user:1"));
+    }
+
+    private void drain(String caller) {
+        limiter.acquire(RateLimiterService.PAYMENTS, caller);
+        limiter.acquire(RateLimiterService.PAYMENTS, caller);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(RateLimiterService.PAYMENTS, caller));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> buckets() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(limiter, "clientBuckets");
+    }
+}
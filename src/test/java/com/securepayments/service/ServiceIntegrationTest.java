@@ -0,0 +1,57 @@
+package com.securepayments.service;
+
+import com.securepayments.model.Block;
+import com.securepayments.model.PaymentTransaction;
+import com.securepayments.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Base for service tests that need the real JPA stack: the 'loadtest' profile's embedded
+ * H2 database, with small limits so mining, chunking and archiving kick in after a few
+ * rows. Every subclass inherits exactly these annotations, so they all share one cached
+ * application context and one database; tests create their own users and only assert on
+ * those (or on properties that must hold for the whole ledger).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:servicetest;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=2000",
+        "blockchain.difficulty.initial-bits=4",
+        "blockchain.difficulty.max-bits=8",
+        "users.deletion.chunk-size=3",
+        "users.deletion.archive-block-range=2",
+        "fees.estimator.block-window=2",
+        "archive.enabled=false",
+        "archive.depth-blocks=3",
+        "archive.blocks-per-batch=2",
+        "activity.verify.initial-delay-ms=3600000"
+})
+abstract class ServiceIntegrationTest {
+
+    @Autowired protected TransactionService transactionService;
+    @Autowired protected BlockchainService blockchainService;
+
+    protected User newUser(String balance) {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        return transactionService.createUser("user-" + tag, tag + "@example.test", new BigDecimal(balance));
+    }
+
+    protected PaymentTransaction pay(User sender, User receiver, String amount, String fee) {
+        return transactionService.createTransaction(sender.getId(), receiver.getId(),
+                new BigDecimal(amount), new BigDecimal(fee));
+    }
+
+    protected Block mine() {
+        return blockchainService.minePendingTransactions();
+    }
+
+    protected BigDecimal balanceOf(User user) {
+        return transactionService.findById(user.getId()).orElseThrow().balance();
+    }
+}
@@ -0,0 +1,115 @@
+package com.securepayments.service;
+
+import com.securepayments.dto.DeletionJobView;
+import com.securepayments.model.User;
+import com.securepayments.repository.TransactionRepository;
+import com.securepayments.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class UserDeletionServiceTest extends ServiceIntegrationTest {
+
+    @Autowired private UserDeletionService userDeletionService;
+    @Autowired private ActivityService activityService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TransactionRepository transactionRepository;
+
+    @Test
+    void deletesPendingRefundsReceivedAndDetachesMinedInChunks() throws Exception {
+        User victim = newUser("100");
+        User payer = newUser("100");
+        User payee = newUser("0");
+
+        // Mined history in both directions
+        pay(victim, payee, "1.00", "0.01");
+        pay(payer, victim, "2.00", "0.01");
+        mine();
+        // More pending rows than one chunk (chunk-size=3) in each direction
+        for (int i = 0; i < 4; i++) {
+            pay(victim, payee, "1.00", "0.01");
+            pay(payer, victim, "3.00", "0.02");
+        }
+        BigDecimal payerBefore = balanceOf(payer);
+
+        DeletionJobView job = await(userDeletionService.submit(victim.getId()));
+
+        assertEquals("COMPLETED", job.state(), job.error());
+        assertEquals(4, job.pendingDeleted());
+        assertEquals(4, job.pendingRefunded());
+        assertEquals(2, job.minedDetached());
+        assertFalse(userRepository.existsById(victim.getId()));
+        assertEquals(0, transactionRepository.countBySenderIdOrReceiverId(victim.getId(), victim.getId()));
+        // Each refund returns amount and fee
+        assertEquals(0, payerBefore.add(new BigDecimal("12.08")).compareTo(balanceOf(payer)));
+
+        assertEquals(List.of(), blockchainService.validateChain());
+        assertEquals(0, activityService.verify(false).usersMismatched());
+    }
+
+    @Test
+    void failedJobLeavesTheBalanceWhole() throws Exception {
+        User victim = newUser("100");
+        User payer = newUser("100");
+        User payee = newUser("0");
+        pay(victim, payee, "10.00", "0.10");
+        pay(victim, payee, "5.00", "0.05");
+        pay(payer, victim, "1.00", "0.01");
+
+        // Fail the job in its second step, after the user's own pending sends were removed
+        ActivityService failingActivity = mock(ActivityService.class);
+        AtomicInteger reversals = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (reversals.incrementAndGet() > 1) {
+                throw new IllegalStateException("simulated failure");
+            }
+            activityService.reversePendingPayments(invocation.getArgument(0));
+            return null;
+        }).when(failingActivity).reversePendingPayments(any());
+        ReflectionTestUtils.setField(userDeletionService, "activityService", failingActivity);
+        DeletionJobView failed;
+        try {
+            failed = await(userDeletionService.submit(victim.getId()));
+        } finally {
+            ReflectionTestUtils.setField(userDeletionService, "activityService", activityService);
+        }
+
+        assertEquals("FAILED", failed.state());
+        assertEquals(2, failed.pendingDeleted());
+        assertTrue(userRepository.existsById(victim.getId()));
+        assertEquals(0, new BigDecimal("100").compareTo(balanceOf(victim)));
+        assertEquals(1, transactionRepository.countBySenderIdOrReceiverId(victim.getId(), victim.getId()));
+        assertEquals(0, activityService.verify(false).usersMismatched());
+
+        // Nothing is left half done: a second run completes
+        assertEquals("COMPLETED", await(userDeletionService.submit(victim.getId())).state());
+    }
+
+    @Test
+    void rejectsUnknownUsers() {
+        assertThrows(IllegalArgumentException.class, () -> userDeletionService.submit(Long.MAX_VALUE));
+    }
+
+    private DeletionJobView await(DeletionJobView job) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            DeletionJobView current = userDeletionService.getJob(job.jobId()).orElseThrow();
+            if (current.finishedAt() != null) {
+                return current;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Deletion job " + job.jobId() + " did not finish");
+    }
+}
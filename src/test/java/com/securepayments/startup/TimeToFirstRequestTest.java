@@ -0,0 +1,166 @@
+package com.securepayments.startup;
+
+import com.securepayments.SecurePaymentsApplication;
+import org.h2.Driver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the application in a fresh JVM with the 'prod' profile as shipped and measures
+ * the time until GET /api/blockchain first answers. Only the datasource is swapped for a
+ * file-based H2 database, whose schema an untimed run creates first, so prod's
+ * ddl-auto=none and metadata-free Hibernate boot are what gets timed.
+ *
+ * After mvn -Pappcds package the runs use the extracted jar in target/appcds, once
+ * without and once with -XX:SharedArchiveFile=application.jsa (so rebuild it after code
+ * changes); otherwise the test classpath is used and there is no CDS run.
+ *
+ *   mvn test -Dtest=TimeToFirstRequestTest -Dbenchmark=true [-Dstartup.budget-ms=60000]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TimeToFirstRequestTest {
+
+    private static final long BUDGET_MS = Long.getLong("startup.budget-ms", 60_000);
+    private static final Path WORK_DIR = Paths.get("target", "startup-test").toAbsolutePath();
+    private static final Path APPCDS_DIR = Paths.get("target", "appcds").toAbsolutePath();
+    private static final Pattern PORT = Pattern.compile("Tomcat started on port (\\d+)");
+
+    @Test
+    void firstRequestIsServedWithinBudget() throws Exception {
+        Files.createDirectories(WORK_DIR);
+        String database = "jdbc:h2:file:" + WORK_DIR.resolve("db") + ";MODE=MySQL";
+        Layout layout = layout();
+
+        // Untimed: create the schema the timed runs expect to exist, then exit once refreshed
+        List<String> setup = command(layout, database, List.of("-Dspring.context.exit=onRefresh"));
+        setup.add("--spring.jpa.hibernate.ddl-auto=create");
+        Process schema = new ProcessBuilder(setup).directory(layout.workingDir().toFile()).redirectErrorStream(true)
+                .redirectOutput(WORK_DIR.resolve("schema.log").toFile()).start();
+        assertTrue(schema.waitFor(2, TimeUnit.MINUTES) && schema.exitValue() == 0,
+                "Schema run failed, see " + WORK_DIR.resolve("schema.log"));
+
+        long plain = timeToFirstRequest(layout, command(layout, database, List.of()));
+        System.out.printf("Startup: first request answered after %d ms%n", plain);
+        assertTrue(plain < BUDGET_MS, "First request took " + plain + " ms");
+
+        if (layout.cdsArchive() != null) {
+            // -Xshare:on fails the run instead of silently starting without the archive
+            long withCds = timeToFirstRequest(layout, command(layout, database,
+                    List.of("-XX:SharedArchiveFile=" + layout.cdsArchive(), "-Xshare:on", "-Xlog:cds=warning")));
+            System.out.printf("Startup: first request answered after %d ms with AppCDS%n", withCds);
+            assertTrue(withCds < BUDGET_MS, "First request took " + withCds + " ms with AppCDS");
+        }
+    }
+
+    private static long timeToFirstRequest(Layout layout, List<String> command) throws Exception {
+        long start = System.nanoTime();
+        Process app = new ProcessBuilder(command).directory(layout.workingDir().toFile()).redirectErrorStream(true).start();
+        ConcurrentLinkedDeque<String> tail = new ConcurrentLinkedDeque<>();
+        CompletableFuture<Integer> port = new CompletableFuture<>();
+        Thread reader = new Thread(() -> readOutput(app, tail, port), "startup-test-output");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(BUDGET_MS);
+            int listening = port.get(BUDGET_MS, TimeUnit.MILLISECONDS);
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + listening + "/api/blockchain")).build();
+            while (true) {
+                try {
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    assertEquals(200, response.statusCode(), () -> String.join("\n", tail));
+                    return (System.nanoTime() - start) / 1_000_000;
+                } catch (ConnectException e) {
+                    if (System.nanoTime() > deadline) {
+                        throw e;
+                    }
+                    Thread.sleep(10);
+                }
+            }
+        } catch (Exception e) {
+            throw new AssertionError("Application did not answer; last output:\n" + String.join("\n", tail), e);
+        } finally {
+            app.destroy();
+            if (!app.waitFor(10, TimeUnit.SECONDS)) {
+                app.destroyForcibly();
+            }
+        }
+    }
+
+    private static void readOutput(Process app, ConcurrentLinkedDeque<String> tail, CompletableFuture<Integer> port) {
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(app.getInputStream()))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                tail.addLast(line);
+                if (tail.size() > 50) {
+                    tail.pollFirst();
+                }
+                Matcher matcher = PORT.matcher(line);
+                if (matcher.find()) {
+                    port.complete(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        } catch (IOException ignored) {
+            // The process was stopped
+        }
+        port.completeExceptionally(new IllegalStateException("Application exited before listening"));
+    }
+
+    private static List<String> command(Layout layout, String database, List<String> jvmOptions) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-Dspring.devtools.restart.enabled=false");
+        command.add("-cp");
+        command.add(String.join(System.getProperty("path.separator"), layout.classpath()));
+        command.add(SecurePaymentsApplication.class.getName());
+        command.add("--spring.profiles.active=prod");
+        command.add("--server.port=0");
+        command.add("--spring.datasource.url=" + database);
+        command.add("--spring.datasource.username=sa");
+        command.add("--spring.datasource.password=");
+        command.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        return command;
+    }
+
+    // The extracted jar, run from its own directory: the CDS archive records the relative
+    // class path of the training run (the jar, then lib/ from its manifest); H2 is appended
+    private static Layout layout() throws Exception {
+        Path jar;
+        try (Stream<Path> files = Files.exists(APPCDS_DIR) ? Files.list(APPCDS_DIR) : Stream.empty()) {
+            jar = files.filter(p -> p.toString().endsWith(".jar")).findFirst().orElse(null);
+        }
+        if (jar == null) {
+            return new Layout(Paths.get("").toAbsolutePath(), List.of(System.getProperty("java.class.path")), null);
+        }
+        Path h2 = Paths.get(Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path archive = APPCDS_DIR.resolve("application.jsa");
+        return new Layout(APPCDS_DIR, List.of(jar.getFileName().toString(), h2.toString()),
+                Files.exists(archive) ? archive.getFileName().toString() : null);
+    }
+
+    private record Layout(Path workingDir, List<String> classpath, String cdsArchive) {}
+}
@@ -0,0 +1,78 @@
+package com.securepayments.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DifficultyUtilTest {
+
+    private static final long TARGET_INTERVAL_MS = 30_000;
+    private static final int WINDOW = 10;
+
+    @Test
+    void meetsDifficultyCountsLeadingZeroBits() {
+        assertTrue(DifficultyUtil.meetsDifficulty("000f", 12));
+        assertFalse(DifficultyUtil.meetsDifficulty("00f0", 12));
+        assertTrue(DifficultyUtil.meetsDifficulty("0003", 14));  // 0000 0000 0000 0011
+        assertFalse(DifficultyUtil.meetsDifficulty("0004", 14)); // 0000 0000 0000 0100
+        assertTrue(DifficultyUtil.meetsDifficulty("7fff", 1));
+        assertFalse(DifficultyUtil.meetsDifficulty("8fff", 1));
+        assertTrue(DifficultyUtil.meetsDifficulty("abc", 0));
+    }
+
+    @Test
+    void retargetStepsByWholeBitsAndClamps() {
+        assertEquals(13, DifficultyUtil.retarget(12, 5_000, 10_000, 2, 1, 28));   // twice too fast
+        assertEquals(11, DifficultyUtil.retarget(12, 20_000, 10_000, 2, 1, 28));  // twice too slow
+        assertEquals(12, DifficultyUtil.retarget(12, 12_000, 10_000, 2, 1, 28));  // within rounding
+        assertEquals(14, DifficultyUtil.retarget(12, 1, 10_000, 2, 1, 28));       // clamped step
+        assertEquals(28, DifficultyUtil.retarget(27, 1, 10_000, 2, 1, 28));       // clamped ceiling
+    }
+
+    /**
+     * Simulates mining with exponentially distributed block times (mean 2^bits / hashRate)
+     * and checks the average interval settles near the target, including after the
+     * hash rate jumps 16x (the "faster machines" case).
+     */
+    @Test
+    void simulatedBlockIntervalConvergesToTarget() {
+        Random random = new Random(42);
+        int bits = 12;
+
+        double hashesPerMs = 1_000;
+        bits = simulate(bits, hashesPerMs, 60, random).bits;
+        Simulation settled = simulate(bits, hashesPerMs, 60, random);
+        assertWithinFactorOfTarget(settled.meanIntervalMs, 2.0);
+
+        hashesPerMs *= 16;
+        bits = simulate(settled.bits, hashesPerMs, 60, random).bits;
+        Simulation resettled = simulate(bits, hashesPerMs, 60, random);
+        assertWithinFactorOfTarget(resettled.meanIntervalMs, 2.0);
+        assertTrue(resettled.bits >= settled.bits + 3, "Difficulty should rise by ~4 bits after a 16x hash rate increase");
+    }
+
+    private static void assertWithinFactorOfTarget(double meanIntervalMs, double factor) {
+        assertTrue(meanIntervalMs > TARGET_INTERVAL_MS / factor && meanIntervalMs < TARGET_INTERVAL_MS * factor,
+                "Mean block interval " + meanIntervalMs + "ms is not within " + factor + "x of " + TARGET_INTERVAL_MS);
+    }
+
+    private static Simulation simulate(int bits, double hashesPerMs, int windows, Random random) {
+        double totalMs = 0;
+        for (int w = 0; w < windows; w++) {
+            double windowMs = 0;
+            double meanBlockMs = Math.pow(2, bits) / hashesPerMs;
+            for (int b = 0; b < WINDOW; b++) {
+                windowMs += -Math.log(1 - random.nextDouble()) * meanBlockMs;
+            }
+            totalMs += windowMs;
+            bits = DifficultyUtil.retarget(bits, (long) windowMs, TARGET_INTERVAL_MS * WINDOW, 2, 1, 40);
+        }
+        return new Simulation(bits, totalMs / (windows * WINDOW));
+    }
+
+    private record Simulation(int bits, double meanIntervalMs) {}
+}